@@ -0,0 +1,9 @@
+--liquibase formatted sql
+
+--changeset lenarsharipov:014_ddl_create_tasks_sequence dbms:postgresql
+CREATE SEQUENCE tasks_seq INCREMENT BY 50;
+SELECT setval('tasks_seq', (SELECT COALESCE(MAX(id), 0) FROM tasks) + 50, false);
+
+--changeset lenarsharipov:014_ddl_create_tasks_sequence_h2 dbms:h2
+CREATE SEQUENCE tasks_seq INCREMENT BY 50;
+ALTER SEQUENCE tasks_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM tasks);
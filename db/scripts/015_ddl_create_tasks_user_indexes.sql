@@ -0,0 +1,3 @@
+CREATE INDEX tasks_user_id_id_idx ON tasks(user_id, id);
+CREATE INDEX tasks_user_id_done_id_idx ON tasks(user_id, done, id);
+CREATE INDEX tasks_user_id_created_idx ON tasks(user_id, created);
@@ -0,0 +1,7 @@
+CREATE INDEX tasks_done_id_idx ON tasks(done, id);
+CREATE INDEX tasks_created_idx ON tasks(created);
+DELETE FROM tasks_categories WHERE id NOT IN (
+    SELECT MIN(id) FROM tasks_categories GROUP BY task_id, category_id
+);
+ALTER TABLE tasks_categories ADD CONSTRAINT tasks_categories_task_id_category_id_key UNIQUE (task_id, category_id);
+CREATE INDEX tasks_categories_category_id_idx ON tasks_categories(category_id);
@@ -0,0 +1,39 @@
+--liquibase formatted sql
+
+--changeset lenarsharipov:017_ddl_partition_tasks_by_created dbms:postgresql splitStatements:false
+ALTER TABLE tasks_categories DROP CONSTRAINT IF EXISTS tasks_categories_task_id_fkey;
+
+CREATE TABLE tasks_partitioned (
+    id          INT NOT NULL DEFAULT nextval('tasks_seq'),
+    description TEXT,
+    created     TIMESTAMP NOT NULL DEFAULT now(),
+    done        BOOLEAN,
+    user_id     INT DEFAULT 1 REFERENCES users(id),
+    priority_id INT NOT NULL REFERENCES priorities(id),
+    PRIMARY KEY (id, created)
+) PARTITION BY RANGE (created);
+
+CREATE TABLE tasks_default PARTITION OF tasks_partitioned DEFAULT;
+
+DO $$
+DECLARE
+    from_month TIMESTAMP := date_trunc('month', COALESCE((SELECT MIN(created) FROM tasks), now()));
+BEGIN
+    WHILE from_month <= date_trunc('month', now()) + INTERVAL '2 months' LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF tasks_partitioned FOR VALUES FROM (%L) TO (%L)',
+                'tasks_' || to_char(from_month, 'YYYY_MM'), from_month, from_month + INTERVAL '1 month');
+        from_month := from_month + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO tasks_partitioned (id, description, created, done, user_id, priority_id)
+SELECT id, description, COALESCE(created, now()), done, user_id, priority_id FROM tasks;
+
+DROP TABLE tasks;
+ALTER TABLE tasks_partitioned RENAME TO tasks;
+
+CREATE INDEX tasks_user_id_id_idx ON tasks(user_id, id);
+CREATE INDEX tasks_user_id_done_id_idx ON tasks(user_id, done, id);
+CREATE INDEX tasks_user_id_created_idx ON tasks(user_id, created);
+CREATE INDEX tasks_done_id_idx ON tasks(done, id);
+CREATE INDEX tasks_created_idx ON tasks(created);
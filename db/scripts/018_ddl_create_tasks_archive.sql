@@ -0,0 +1,15 @@
+CREATE TABLE tasks_archive (
+    id          INT PRIMARY KEY,
+    description TEXT,
+    created     TIMESTAMP,
+    done        BOOLEAN,
+    user_id     INT,
+    priority_id INT,
+    archived    TIMESTAMP NOT NULL DEFAULT now()
+);
+CREATE INDEX tasks_archive_user_id_id_idx ON tasks_archive(user_id, id);
+CREATE TABLE tasks_categories_archive (
+    task_id     INT NOT NULL,
+    category_id INT NOT NULL,
+    PRIMARY KEY (task_id, category_id)
+);
@@ -0,0 +1,7 @@
+CREATE TABLE user_purges (
+    user_id       INT PRIMARY KEY,
+    login         VARCHAR   NOT NULL,
+    started       TIMESTAMP NOT NULL DEFAULT now(),
+    tasks_deleted BIGINT    NOT NULL DEFAULT 0,
+    finished      TIMESTAMP
+);
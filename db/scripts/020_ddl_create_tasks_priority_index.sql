@@ -0,0 +1 @@
+CREATE INDEX tasks_priority_id_id_idx ON tasks(priority_id, id);
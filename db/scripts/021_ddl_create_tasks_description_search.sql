@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset lenarsharipov:021_ddl_create_tasks_description_search dbms:postgresql
+ALTER TABLE tasks ADD COLUMN description_tsv TSVECTOR
+    GENERATED ALWAYS AS (to_tsvector('simple', coalesce(description, ''))) STORED;
+CREATE INDEX tasks_description_tsv_idx ON tasks USING GIN (description_tsv);
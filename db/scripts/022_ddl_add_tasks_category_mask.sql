@@ -0,0 +1,22 @@
+--liquibase formatted sql
+
+--changeset lenarsharipov:022_ddl_add_tasks_category_mask
+ALTER TABLE tasks ADD COLUMN category_mask BIGINT NOT NULL DEFAULT 0;
+
+--changeset lenarsharipov:022_dml_fill_tasks_category_mask_postgresql dbms:postgresql
+UPDATE tasks t SET category_mask = COALESCE((
+    SELECT SUM(1::BIGINT << (tc.category_id - 1))::BIGINT
+    FROM tasks_categories tc
+    WHERE tc.task_id = t.id AND tc.category_id BETWEEN 1 AND 64
+), 0);
+
+--changeset lenarsharipov:022_ddl_create_bitand_function dbms:postgresql splitStatements:false
+CREATE OR REPLACE FUNCTION bitand(a BIGINT, b BIGINT) RETURNS BIGINT
+    AS 'SELECT a & b' LANGUAGE SQL IMMUTABLE;
+
+--changeset lenarsharipov:022_dml_fill_tasks_category_mask_h2 dbms:h2
+UPDATE tasks t SET category_mask = COALESCE((
+    SELECT SUM(LSHIFT(CAST(1 AS BIGINT), tc.category_id - 1))
+    FROM tasks_categories tc
+    WHERE tc.task_id = t.id AND tc.category_id BETWEEN 1 AND 64
+), 0);
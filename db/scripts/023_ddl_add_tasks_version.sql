@@ -0,0 +1,4 @@
+--liquibase formatted sql
+
+--changeset lenarsharipov:023_ddl_add_tasks_version
+ALTER TABLE tasks ADD COLUMN version INT NOT NULL DEFAULT 0;
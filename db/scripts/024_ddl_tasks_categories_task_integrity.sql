@@ -0,0 +1,46 @@
+--liquibase formatted sql
+
+--changeset lenarsharipov:024_ddl_tasks_categories_task_integrity dbms:postgresql splitStatements:false
+-- Since 017 tasks is partitioned by created: its primary key is (id, created),
+-- tasks_categories.task_id can not reference it and id alone is not unique.
+-- Triggers take over: a link needs an existing task, a deleted task takes its links
+-- with it, and id stays unique across partitions. A task moved to another partition
+-- by new created is deleted and inserted again, so its links stay while the id exists.
+-- Detaching a partition fires no trigger: TaskPartitionStore removes links itself.
+DELETE FROM tasks_categories tc WHERE NOT EXISTS (SELECT 1 FROM tasks t WHERE t.id = tc.task_id);
+
+CREATE FUNCTION tasks_categories_check_task() RETURNS trigger AS $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM tasks WHERE id = NEW.task_id) THEN
+        RAISE foreign_key_violation
+            USING MESSAGE = format('Task %s of tasks_categories does not exist', NEW.task_id);
+    END IF;
+    RETURN NEW;
+END $$ LANGUAGE plpgsql;
+
+CREATE TRIGGER tasks_categories_task_id_fkey
+    BEFORE INSERT OR UPDATE OF task_id ON tasks_categories
+    FOR EACH ROW EXECUTE FUNCTION tasks_categories_check_task();
+
+CREATE FUNCTION tasks_delete_categories() RETURNS trigger AS $$
+BEGIN
+    DELETE FROM tasks_categories tc
+    WHERE tc.task_id = OLD.id AND NOT EXISTS (SELECT 1 FROM tasks t WHERE t.id = OLD.id);
+    RETURN OLD;
+END $$ LANGUAGE plpgsql;
+
+CREATE TRIGGER tasks_delete_categories
+    AFTER DELETE ON tasks
+    FOR EACH ROW EXECUTE FUNCTION tasks_delete_categories();
+
+CREATE FUNCTION tasks_check_unique_id() RETURNS trigger AS $$
+BEGIN
+    IF (SELECT COUNT(*) FROM tasks WHERE id = NEW.id) > 1 THEN
+        RAISE unique_violation USING MESSAGE = format('Task %s already exists', NEW.id);
+    END IF;
+    RETURN NEW;
+END $$ LANGUAGE plpgsql;
+
+CREATE TRIGGER tasks_id_key
+    AFTER INSERT OR UPDATE OF id ON tasks
+    FOR EACH ROW EXECUTE FUNCTION tasks_check_unique_id();
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset lenarsharipov:025_ddl_add_users_admin
+ALTER TABLE users ADD COLUMN admin BOOLEAN NOT NULL DEFAULT FALSE;
+UPDATE users SET admin = TRUE WHERE login = 'admin';
@@ -0,0 +1,15 @@
+--liquibase formatted sql
+
+--changeset lenarsharipov:026_ddl_lock_tasks_unique_id dbms:postgresql splitStatements:false
+-- Partitioned tasks can not have a unique constraint on id alone, and the count
+-- of 024 alone lets two transactions inserting one id both pass, as neither sees
+-- the other's row. Transaction lock on the id makes the second wait for the first
+-- to end; its count then sees the committed row and fails.
+CREATE OR REPLACE FUNCTION tasks_check_unique_id() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('tasks'), NEW.id);
+    IF (SELECT COUNT(*) FROM tasks WHERE id = NEW.id) > 1 THEN
+        RAISE unique_violation USING MESSAGE = format('Task %s already exists', NEW.id);
+    END IF;
+    RETURN NEW;
+END $$ LANGUAGE plpgsql;
@@ -5,14 +5,26 @@ import org.hibernate.SessionFactory;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
 import ru.job4j.todo.model.Task;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Properties;
 
 public class ToDoRun {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        var properties = new Properties();
+        try (var in = ToDoRun.class.getClassLoader()
+                .getResourceAsStream("application.properties")) {
+            properties.load(in);
+        }
         final StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
-                .configure().build();
+                .configure()
+                .applySetting(AvailableSettings.URL, properties.getProperty("datasource.url"))
+                .applySetting(AvailableSettings.USER, properties.getProperty("datasource.username"))
+                .applySetting(AvailableSettings.PASS, properties.getProperty("datasource.password"))
+                .build();
         try {
             SessionFactory sf = new MetadataSources(registry).buildMetadata().buildSessionFactory();
             var stored = listOf("FROM Task f JOIN FETCH f.priority", Task.class, sf);
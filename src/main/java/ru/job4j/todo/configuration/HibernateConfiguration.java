@@ -1,18 +1,59 @@
 package ru.job4j.todo.configuration;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class HibernateConfiguration {
+    private static final String POOL_NAME = "todo-pool";
+
+    /**
+     * Pooled DataSource configured by datasource.* keys of application.properties.
+     * @return HikariDataSource.
+     */
+    @Bean(destroyMethod = "close")
+    public HikariDataSource dataSource(
+            @Value("${datasource.url}") String url,
+            @Value("${datasource.username}") String username,
+            @Value("${datasource.password}") String password,
+            @Value("${datasource.pool.minimum-idle}") int minimumIdle,
+            @Value("${datasource.pool.maximum-size}") int maximumSize,
+            @Value("${datasource.pool.connection-timeout}") long connectionTimeout,
+            @Value("${datasource.pool.leak-detection-threshold}") long leakDetection) {
+        var config = new HikariConfig();
+        config.setPoolName(POOL_NAME);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMinimumIdle(minimumIdle);
+        config.setMaximumPoolSize(maximumSize);
+        config.setConnectionTimeout(connectionTimeout);
+        config.setLeakDetectionThreshold(leakDetection);
+        config.setAutoCommit(false);
+        config.setRegisterMbeans(true);
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * SessionFactory built on top of the pooled DataSource.
+     * @param dataSource HikariDataSource.
+     * @return SessionFactory.
+     */
     @Bean(destroyMethod = "close")
-    public SessionFactory sf() {
+    public SessionFactory sf(HikariDataSource dataSource) {
         final StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
-                .configure().build();
+                .configure()
+                .applySetting(AvailableSettings.DATASOURCE, dataSource)
+                .applySetting(AvailableSettings.CONNECTION_PROVIDER_DISABLES_AUTOCOMMIT, true)
+                .build();
         return new MetadataSources(registry).buildMetadata().buildSessionFactory();
     }
 }
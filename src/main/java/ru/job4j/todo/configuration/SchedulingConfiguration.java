@@ -0,0 +1,12 @@
+package ru.job4j.todo.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled maintenance jobs.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
@@ -0,0 +1,145 @@
+package ru.job4j.todo.controller;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.AllArgsConstructor;
+import net.jcip.annotations.ThreadSafe;
+import org.hibernate.SessionFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.job4j.todo.service.CategoryService;
+import ru.job4j.todo.service.PriorityService;
+import ru.job4j.todo.service.TaskArchiveService;
+import ru.job4j.todo.service.TaskService;
+import ru.job4j.todo.service.UserPurgeService;
+import ru.job4j.todo.util.TaskQuery;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MetricsController exposes runtime metrics as JSON.
+ * @author Lenar Sharipov
+ * @version 1.0
+ */
+@ThreadSafe
+@RestController
+@RequestMapping("/metrics")
+@AllArgsConstructor
+public class MetricsController {
+
+    private final HikariDataSource dataSource;
+    private final SessionFactory sf;
+    private final PriorityService priorityService;
+    private final CategoryService categoryService;
+    private final TaskService taskService;
+    private final TaskArchiveService archiveService;
+    private final UserPurgeService purgeService;
+
+    /**
+     * Live connection pool metrics.
+     * @return active, idle, pending and total connections with pool bounds.
+     */
+    @GetMapping("/pool")
+    public Map<String, Object> getPoolMetrics() {
+        var pool = dataSource.getHikariPoolMXBean();
+        var result = new LinkedHashMap<String, Object>();
+        result.put("active", pool.getActiveConnections());
+        result.put("idle", pool.getIdleConnections());
+        result.put("pending", pool.getThreadsAwaitingConnection());
+        result.put("total", pool.getTotalConnections());
+        result.put("minimumIdle", dataSource.getMinimumIdle());
+        result.put("maximumSize", dataSource.getMaximumPoolSize());
+        return result;
+    }
+
+    /**
+     * Hit and miss metrics of priorities and categories caches.
+     * @return metrics of each cache.
+     */
+    @GetMapping("/reference")
+    public List<Map<String, Object>> getReferenceMetrics() {
+        return List.of(priorityService.cacheMetrics(), categoryService.cacheMetrics());
+    }
+
+    /**
+     * Drop cached priorities and categories, so they are reloaded on next use.
+     * @return metrics of each cache.
+     */
+    @PostMapping("/reference/refresh")
+    public List<Map<String, Object>> refreshReference() {
+        priorityService.refresh();
+        categoryService.refresh();
+        return getReferenceMetrics();
+    }
+
+    /**
+     * Metrics of task cache serving task pages.
+     * @return hits, misses, evictions, size and hit ratio.
+     */
+    @GetMapping("/tasks")
+    public Map<String, Object> getTaskCacheMetrics() {
+        return taskService.cacheMetrics();
+    }
+
+    /**
+     * Metrics of typeahead index of task descriptions.
+     * @return indexed tasks and words, estimated memory use and its bound, lookup time.
+     */
+    @GetMapping("/suggest")
+    public Map<String, Object> getSuggestMetrics() {
+        return taskService.suggestMetrics();
+    }
+
+    /**
+     * Metrics of archiver moving completed tasks into tasks_archive.
+     * @return runs, chunks, archived tasks, watermark and throughput.
+     */
+    @GetMapping("/archive")
+    public Map<String, Object> getArchiveMetrics() {
+        return archiveService.metrics();
+    }
+
+    /**
+     * Progress of user purges.
+     * @return unfinished purges, batches, deleted tasks and purged users.
+     */
+    @GetMapping("/purge")
+    public Map<String, Object> getPurgeMetrics() {
+        return purgeService.metrics();
+    }
+
+    /**
+     * Second-level and query cache metrics per region.
+     * @return hits, misses, puts, size and hit ratio of each region.
+     */
+    @GetMapping("/cache")
+    public Map<String, Object> getCacheMetrics() {
+        var statistics = sf.getStatistics();
+        var result = new LinkedHashMap<String, Object>();
+        for (var name : statistics.getSecondLevelCacheRegionNames()) {
+            var region = statistics.getDomainDataRegionStatistics(name);
+            result.put(name, regionMetrics(region.getHitCount(), region.getMissCount(),
+                    region.getPutCount(), region.getElementCountInMemory()));
+        }
+        var queries = statistics.getQueryRegionStatistics(TaskQuery.LISTS_REGION);
+        if (queries != null) {
+            result.put(TaskQuery.LISTS_REGION, regionMetrics(
+                    queries.getHitCount(), queries.getMissCount(),
+                    queries.getPutCount(), queries.getElementCountInMemory()));
+        }
+        return result;
+    }
+
+    private Map<String, Object> regionMetrics(long hits, long misses, long puts, long size) {
+        var result = new LinkedHashMap<String, Object>();
+        result.put("hits", hits);
+        result.put("misses", misses);
+        result.put("puts", puts);
+        result.put("size", size);
+        result.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return result;
+    }
+}
@@ -2,22 +2,53 @@ package ru.job4j.todo.controller;
 
 import lombok.AllArgsConstructor;
 import net.jcip.annotations.ThreadSafe;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import ru.job4j.todo.model.Category;
+import ru.job4j.todo.model.Priority;
+import ru.job4j.todo.model.Slice;
 import ru.job4j.todo.model.Task;
+import ru.job4j.todo.model.TaskFilter;
+import ru.job4j.todo.model.TaskFilterForm;
+import ru.job4j.todo.model.TaskPatch;
+import ru.job4j.todo.model.TaskRow;
+import ru.job4j.todo.model.TaskSort;
+import ru.job4j.todo.model.TaskSuggestion;
 import ru.job4j.todo.model.User;
 import ru.job4j.todo.service.CategoryService;
 import ru.job4j.todo.service.PriorityService;
 import ru.job4j.todo.service.TaskService;
 import ru.job4j.todo.util.Attribute;
+import ru.job4j.todo.util.Cursor;
 import ru.job4j.todo.util.Message;
 import ru.job4j.todo.util.Page;
+import ru.job4j.todo.util.TaskExport;
 import ru.job4j.todo.util.TimezoneUtil;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 /**
@@ -32,49 +63,343 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class TaskController {
     private static final boolean FLAG = true;
+    private static final int PAGE_SIZE = 20;
+    private static final int MAX_SUGGESTIONS = 20;
+    private static final String ALL = "all";
+    private static final String MINE = "mine";
+    private static final int EXPORT_CHUNK = 1000;
+    private static final int IMPORT_FIELDS = 7;
+    private static final int DESCRIPTION = 1;
+    private static final int CATEGORIES = 2;
+    private static final int CREATED = 3;
+    private static final int DONE = 4;
+    private static final int PRIORITY = 5;
     private final TaskService taskService;
     private final PriorityService priorityService;
     private final CategoryService categoryService;
 
     /**
-     * List all existing tasks.
+     * List one page of existing tasks, optionally filtered and sorted.
+     * @param cursor token of the previous page, absent for the first page.
+     * @param view "mine" for tasks of current user only, "all" for every task.
+     * @param total add total number of tasks listed by the pages.
+     * @param form filter and sort order from query parameters.
      * @param model model.
      * @return tasks/list.
      */
     @GetMapping()
-    public String getAll(Model model, HttpServletRequest request) {
-        var tasks = taskService.findAll();
-        tasks.forEach(t -> TimezoneUtil.convertTaskTime(t, request));
-        model.addAttribute(Attribute.TASKS, tasks);
+    public String getAll(@RequestParam(required = false) String cursor,
+                         @RequestParam(defaultValue = ALL) String view,
+                         @RequestParam(defaultValue = "false") boolean total,
+                         @ModelAttribute(Attribute.FILTER) TaskFilterForm form,
+                         Model model, HttpServletRequest request) {
+        var lastId = Cursor.decode(cursor);
+        var filter = form.toFilter(MINE.equals(view) ? userId(request) : null,
+                TimezoneUtil.userZone(request));
+        Slice<TaskRow> slice;
+        if (filter.isPlain()) {
+            slice = MINE.equals(view)
+                    ? taskService.findAllByUser(userId(request), lastId, PAGE_SIZE)
+                    : taskService.findAll(lastId, PAGE_SIZE);
+        } else {
+            slice = taskService.findByFilter(filter, Cursor.decodeKey(cursor), lastId, PAGE_SIZE);
+        }
+        addSlice(slice, view, total ? () -> taskService.count(filter) : null, model, request);
+        model.addAttribute(Attribute.PRIORITIES, priorityService.findAll());
+        model.addAttribute(Attribute.CATEGORIES, categoryService.findAll());
+        model.addAttribute(Attribute.SORTS, TaskSort.values());
         return Page.TASKS_LIST;
     }
 
     /**
-     * List all completed tasks existing in DB.
+     * List one page of completed tasks existing in DB.
+     * @param cursor token of the previous page, absent for the first page.
+     * @param view "mine" for tasks of current user only, "all" for every task.
+     * @param archive list archived tasks instead of live ones.
+     * @param total add total number of tasks listed by the pages.
      * @param model model.
      * @return tasks/completed.
      */
     @GetMapping("/completed")
-    public String getCompleted(Model model, HttpServletRequest request) {
-        var tasks = taskService.findAllCompleted(FLAG);
-        tasks.forEach(t -> TimezoneUtil.convertTaskTime(t, request));
-        model.addAttribute(Attribute.TASKS, tasks);
+    public String getCompleted(@RequestParam(required = false) String cursor,
+                               @RequestParam(defaultValue = ALL) String view,
+                               @RequestParam(defaultValue = "false") boolean archive,
+                               @RequestParam(defaultValue = "false") boolean total,
+                               Model model, HttpServletRequest request) {
+        var lastId = Cursor.decode(cursor);
+        var userId = MINE.equals(view) ? userId(request) : null;
+        Slice<TaskRow> slice;
+        LongSupplier count;
+        if (archive) {
+            count = () -> taskService.countArchived(userId);
+            slice = userId != null
+                    ? taskService.findArchivedByUser(userId, lastId, PAGE_SIZE)
+                    : taskService.findArchived(lastId, PAGE_SIZE);
+        } else {
+            count = () -> taskService.count(
+                    TaskFilter.builder().done(FLAG).userId(userId).build());
+            slice = userId != null
+                    ? taskService.findCompletedByUser(userId, FLAG, lastId, PAGE_SIZE)
+                    : taskService.findAllCompleted(FLAG, lastId, PAGE_SIZE);
+        }
+        addSlice(slice, view, total ? count : null, model, request);
+        model.addAttribute(Attribute.ARCHIVE, archive);
         return Page.TASKS_COMPLETED;
     }
 
     /**
-     * List all new tasks existing in DB.
+     * List one page of new tasks existing in DB.
+     * @param cursor token of the previous page, absent for the first page.
+     * @param view "mine" for tasks of current user only, "all" for every task.
+     * @param total add total number of tasks listed by the pages.
      * @param model model.
      * @return tasks/new.
      */
     @GetMapping("/new")
-    public String getNew(Model model, HttpServletRequest request) {
-        var tasks = taskService.findAllNew();
-        tasks.forEach(t -> TimezoneUtil.convertTaskTime(t, request));
-        model.addAttribute(Attribute.TASKS, tasks);
+    public String getNew(@RequestParam(required = false) String cursor,
+                         @RequestParam(defaultValue = ALL) String view,
+                         @RequestParam(defaultValue = "false") boolean total,
+                         Model model, HttpServletRequest request) {
+        var lastId = Cursor.decode(cursor);
+        var userId = MINE.equals(view) ? userId(request) : null;
+        var slice = userId != null
+                ? taskService.findNewByUser(userId, lastId, PAGE_SIZE)
+                : taskService.findAllNew(lastId, PAGE_SIZE);
+        addSlice(slice, view, total ? () -> taskService.countNew(userId) : null,
+                model, request);
         return Page.TASKS_NEW;
     }
 
+    /**
+     * List one page of tasks found by text, the most relevant first.
+     * @param q search query.
+     * @param page page number, starting from 0.
+     * @param model model.
+     * @return tasks/search.
+     */
+    @GetMapping("/search")
+    public String search(@RequestParam(defaultValue = "") String q,
+                         @RequestParam(defaultValue = "0") int page,
+                         Model model, HttpServletRequest request) {
+        var current = Math.max(page, 0);
+        var slice = taskService.search(q, current, PAGE_SIZE);
+        var tasks = slice.items().stream()
+                .map(row -> TimezoneUtil.convertRowTime(row, request))
+                .toList();
+        model.addAttribute(Attribute.TASKS, tasks);
+        model.addAttribute(Attribute.QUERY, q);
+        if (slice.hasNext()) {
+            model.addAttribute(Attribute.NEXT_PAGE, current + 1);
+        }
+        return Page.TASKS_SEARCH;
+    }
+
+    /**
+     * Suggest tasks while user types description.
+     * @param q words typed so far.
+     * @param limit max number of suggestions, at most MAX_SUGGESTIONS.
+     * @return suggestions as JSON, the newest tasks first.
+     */
+    @GetMapping("/suggest")
+    @ResponseBody
+    public List<TaskSuggestion> suggest(@RequestParam(defaultValue = "") String q,
+                                        @RequestParam(defaultValue = "10") int limit) {
+        return taskService.suggest(q, Math.min(limit, MAX_SUGGESTIONS));
+    }
+
+    private int userId(HttpServletRequest request) {
+        return ((User) request.getAttribute(Attribute.USER)).getId();
+    }
+
+    /**
+     * Put tasks of the page, view, next page token and optional total into model.
+     * @param slice page of tasks.
+     * @param view "mine" or "all".
+     * @param total number of tasks listed by the pages, or null if not requested.
+     * @param model model.
+     * @param request HttpServletRequest.
+     */
+    private void addSlice(Slice<TaskRow> slice, String view, LongSupplier total,
+                          Model model, HttpServletRequest request) {
+        var tasks = slice.items().stream()
+                .map(row -> TimezoneUtil.convertRowTime(row, request))
+                .toList();
+        model.addAttribute(Attribute.TASKS, tasks);
+        model.addAttribute(Attribute.VIEW, MINE.equals(view) ? MINE : ALL);
+        if (slice.hasNext()) {
+            model.addAttribute(Attribute.NEXT_CURSOR,
+                    Cursor.encode(slice.lastKey(), slice.lastId()));
+        }
+        if (total != null) {
+            model.addAttribute(Attribute.TOTAL, total.getAsLong());
+        }
+    }
+
+    /**
+     * Stream all tasks as CSV straight into response.
+     * @param response HttpServletResponse.
+     */
+    @GetMapping("/export/csv")
+    public void exportCsv(HttpServletResponse response) throws IOException {
+        response.setContentType(TaskExport.CSV_CONTENT_TYPE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, TaskExport.CSV_FILE);
+        export(response, TaskExport.CSV_HEADER, TaskExport::toCsv);
+    }
+
+    /**
+     * Stream all tasks as newline delimited JSON straight into response.
+     * @param response HttpServletResponse.
+     */
+    @GetMapping("/export/ndjson")
+    public void exportNdjson(HttpServletResponse response) throws IOException {
+        response.setContentType(TaskExport.NDJSON_CONTENT_TYPE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, TaskExport.NDJSON_FILE);
+        export(response, null, TaskExport::toJson);
+    }
+
+    /**
+     * Write one line per task, flushing every EXPORT_CHUNK lines,
+     * so memory use does not depend on number of tasks.
+     * Export failure propagates: before the first flush client gets error status,
+     * after it the response is aborted instead of being completed as truncated file.
+     * @param response HttpServletResponse.
+     * @param header first line or null.
+     * @param format task row format.
+     */
+    private void export(HttpServletResponse response, String header,
+                        Function<TaskRow, String> format) throws IOException {
+        var writer = new BufferedWriter(
+                new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        if (header != null) {
+            writer.write(header);
+            writer.newLine();
+        }
+        var lines = new AtomicLong();
+        taskService.export(row -> {
+            try {
+                writer.write(format.apply(row));
+                writer.newLine();
+                if (lines.incrementAndGet() % EXPORT_CHUNK == 0) {
+                    writer.flush();
+                }
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        });
+        writer.flush();
+    }
+
+    /**
+     * Import tasks from CSV file in export format. Header line is skipped,
+     * ids and owners of the file are ignored: imported tasks get new ids
+     * and belong to current user. Priorities and categories are matched by name.
+     * The whole file is validated first, and only a file without invalid
+     * records is saved, by one transaction: import is all or nothing.
+     * On success get redirected to /tasks page.
+     * On failure get errors/404 page with error message and errors per line.
+     * @param file CSV file.
+     * @param model model.
+     * @return redirect:/tasks or errors/404.
+     */
+    @PostMapping("/import")
+    public String importCsv(@RequestParam("file") MultipartFile file,
+                            Model model, HttpServletRequest request) {
+        var user = (User) request.getAttribute(Attribute.USER);
+        var priorities = priorityService.findAll().stream()
+                .collect(Collectors.toMap(Priority::getName, Function.identity()));
+        var categories = categoryService.findAll().stream()
+                .collect(Collectors.toMap(Category::getName, Function.identity()));
+        var tasks = new ArrayList<Task>();
+        var errors = new ArrayList<String>();
+        try (var reader = new LineNumberReader(
+                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            TaskExport.readCsv(reader);
+            var line = reader.getLineNumber() + 1;
+            List<String> fields;
+            while ((fields = TaskExport.readCsv(reader)) != null) {
+                var error = invalid(fields, priorities, categories);
+                if (error != null) {
+                    errors.add(String.format(Message.IMPORT_LINE_INVALID, line, error));
+                } else if (errors.isEmpty()) {
+                    tasks.add(toTask(fields, user, priorities, categories));
+                }
+                line = reader.getLineNumber() + 1;
+            }
+        } catch (IOException | RuntimeException exception) {
+            model.addAttribute(Attribute.MESSAGE, Message.TASKS_NOT_IMPORTED);
+            return Page.ERRORS_404;
+        }
+        if (!errors.isEmpty()) {
+            model.addAttribute(Attribute.MESSAGE, Message.TASKS_NOT_IMPORTED);
+            model.addAttribute(Attribute.ERRORS, errors);
+            return Page.ERRORS_404;
+        }
+        if (!tasks.isEmpty() && taskService.saveAll(tasks) != tasks.size()) {
+            model.addAttribute(Attribute.MESSAGE, Message.TASKS_NOT_SAVED);
+            return Page.ERRORS_404;
+        }
+        return Page.REDIRECT_TASKS;
+    }
+
+    /**
+     * Check CSV record: number of fields, creation time, priority and category names.
+     * @param fields CSV record.
+     * @param priorities priorities by name.
+     * @param categories categories by name.
+     * @return error or null if record is valid.
+     */
+    private String invalid(List<String> fields, Map<String, Priority> priorities,
+                           Map<String, Category> categories) {
+        if (fields.size() != IMPORT_FIELDS) {
+            return String.format(Message.IMPORT_FIELDS_INVALID, fields.size(), IMPORT_FIELDS);
+        }
+        var created = fields.get(CREATED);
+        if (!created.isBlank()) {
+            try {
+                LocalDateTime.parse(created);
+            } catch (DateTimeParseException exception) {
+                return String.format(Message.IMPORT_CREATED_INVALID, created);
+            }
+        }
+        if (!priorities.containsKey(fields.get(PRIORITY))) {
+            return String.format(Message.IMPORT_PRIORITY_UNKNOWN, fields.get(PRIORITY));
+        }
+        for (var name : categoryNames(fields)) {
+            if (!categories.containsKey(name)) {
+                return String.format(Message.IMPORT_CATEGORY_UNKNOWN, name);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Map valid CSV record onto new task.
+     * @param fields CSV record.
+     * @param user owner.
+     * @param priorities priorities by name.
+     * @param categories categories by name.
+     * @return new task.
+     */
+    private Task toTask(List<String> fields, User user,
+                        Map<String, Priority> priorities, Map<String, Category> categories) {
+        var task = new Task();
+        task.setDescription(fields.get(DESCRIPTION));
+        var created = fields.get(CREATED);
+        task.setCreated(created.isBlank() ? LocalDateTime.now() : LocalDateTime.parse(created));
+        task.setDone(Boolean.parseBoolean(fields.get(DONE)));
+        task.setPriority(priorities.get(fields.get(PRIORITY)));
+        task.setUser(user);
+        for (var name : categoryNames(fields)) {
+            task.getCategories().add(categories.get(name));
+        }
+        return task;
+    }
+
+    private static List<String> categoryNames(List<String> fields) {
+        var names = fields.get(CATEGORIES);
+        return names.isEmpty() ? List.of() : List.of(names.split(";"));
+    }
+
     /**
      * Get Task creation page.
      * @return tasks/create.
@@ -161,12 +486,29 @@ public class TaskController {
         return Page.REDIRECT_TASKS;
     }
 
+    /**
+     * Delete selected tasks of current user. Then get redirected to /tasks page
+     * with number of tasks actually deleted.
+     * @param ids IDs of selected tasks.
+     * @param attributes redirect attributes.
+     * @return redirect:/tasks.
+     */
+    @PostMapping("/delete")
+    public String deleteAll(
+            @RequestParam(name = Attribute.IDS, required = false) List<Integer> ids,
+            RedirectAttributes attributes, HttpServletRequest request) {
+        var deleted = ids == null ? 0 : taskService.delete(ids, userId(request));
+        attributes.addFlashAttribute(Attribute.AFFECTED,
+                String.format(Message.TASKS_DELETED, deleted));
+        return Page.REDIRECT_TASKS;
+    }
+
     /**
      * Util method that retrieves IDs from passed task categories.
      * @param categories task categories.
      * @return list of selected category Ids.
      */
-    private List<Integer> getCategoryIds(List<Category> categories) {
+    private List<Integer> getCategoryIds(Collection<Category> categories) {
         return categories.stream()
                 .map(Category::getId)
                 .collect(Collectors.toList());
@@ -201,20 +543,60 @@ public class TaskController {
     /**
      * Edit and Update specified Task.
      * On success get redirected to /tasks page.
+     * If task was changed since the form was loaded get tasks/edit page
+     * with current task and conflict message.
      * On failure get errors/404 page with error message.
      * @param task task.
      * @param model model.
-     * @return redirect:/tasks or errors/404.
+     * @return redirect:/tasks, tasks/edit or errors/404.
      */
     @PostMapping("/edit/{id}")
     public String update(@ModelAttribute Task task, Model model, HttpServletRequest request) {
         addCategories(task, request);
-        var isUpdated = taskService.update(task);
-        if (!isUpdated) {
-            model.addAttribute(Attribute.MESSAGE, Message.TASK_NOT_UPDATED);
-            return Page.ERRORS_404;
+        return switch (taskService.update(task)) {
+            case PATCHED -> Page.REDIRECT_TASKS;
+            case CONFLICT -> {
+                model.addAttribute(Attribute.MESSAGE, Message.TASK_VERSION_CONFLICT);
+                yield getEditPage(task.getId(), model);
+            }
+            case NOT_FOUND, FAILED -> {
+                model.addAttribute(Attribute.MESSAGE, Message.TASK_NOT_UPDATED);
+                yield Page.ERRORS_404;
+            }
+        };
+    }
+
+    /**
+     * Change only fields sent in JSON body, based on task version known
+     * to client. No lock is taken: stale version fails fast.
+     * @param id ID.
+     * @param patch version and changed fields.
+     * @return 200 with new version, 400 on invalid patch or unknown category,
+     * 404 if no task, 409 if task was changed since the version.
+     */
+    @PatchMapping("/{id}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> patch(@PathVariable int id,
+                                                     @RequestBody TaskPatch patch) {
+        if (patch.version() == null || patch.isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of(Attribute.MESSAGE, Message.TASK_PATCH_INVALID));
         }
-        return Page.REDIRECT_TASKS;
+        if (patch.categoryIds() != null
+                && !getCategoryIds(categoryService.findAll()).containsAll(patch.categoryIds())) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of(Attribute.MESSAGE, Message.TASK_CATEGORY_UNKNOWN));
+        }
+        return switch (taskService.patch(id, patch)) {
+            case PATCHED -> ResponseEntity.ok(Map.of(Attribute.ID, id,
+                    Attribute.VERSION, patch.version() + 1));
+            case CONFLICT -> ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of(Attribute.MESSAGE, Message.TASK_VERSION_CONFLICT));
+            case NOT_FOUND -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of(Attribute.MESSAGE, Message.TASK_NOT_FOUND));
+            case FAILED -> ResponseEntity.badRequest()
+                    .body(Map.of(Attribute.MESSAGE, Message.TASK_NOT_UPDATED));
+        };
     }
 
     /**
@@ -234,4 +616,21 @@ public class TaskController {
         }
         return Page.REDIRECT_TASKS;
     }
+
+    /**
+     * Complete selected tasks of current user. Then get redirected to /tasks page
+     * with number of tasks actually updated.
+     * @param ids IDs of selected tasks.
+     * @param attributes redirect attributes.
+     * @return redirect:/tasks.
+     */
+    @PostMapping("/complete")
+    public String updateStatusAll(
+            @RequestParam(name = Attribute.IDS, required = false) List<Integer> ids,
+            RedirectAttributes attributes, HttpServletRequest request) {
+        var updated = ids == null ? 0 : taskService.updateStatus(ids, userId(request));
+        attributes.addFlashAttribute(Attribute.AFFECTED,
+                String.format(Message.TASKS_COMPLETED, updated));
+        return Page.REDIRECT_TASKS;
+    }
 }
\ No newline at end of file
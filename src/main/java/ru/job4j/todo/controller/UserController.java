@@ -2,20 +2,28 @@ package ru.job4j.todo.controller;
 
 import lombok.AllArgsConstructor;
 import net.jcip.annotations.ThreadSafe;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
 import ru.job4j.todo.model.User;
+import ru.job4j.todo.service.UserPurgeService;
 import ru.job4j.todo.service.UserService;
 import ru.job4j.todo.util.Attribute;
 import ru.job4j.todo.util.Message;
 import ru.job4j.todo.util.Page;
 import ru.job4j.todo.util.TimezoneUtil;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * UserController.
@@ -29,6 +37,7 @@ import javax.servlet.http.HttpSession;
 public class UserController {
 
     private final UserService userService;
+    private final UserPurgeService purgeService;
 
     /**
      * Get User creation page.
@@ -86,6 +95,41 @@ public class UserController {
         return Page.REDIRECT_TASKS;
     }
 
+    /**
+     * Register purge of user with all their tasks, run in background.
+     * User may purge only themselves, administrator may purge anyone
+     * but themselves, so administrator account and its login always remain.
+     * Purged current user is logged out.
+     * @param login login of user.
+     * @param request HttpServletRequest.
+     * @param session HttpSession.
+     * @return 200 with registered flag and progress of user purges,
+     * 403 if current user may not purge the user or user is administrator.
+     */
+    @PostMapping("/purge/{login}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> purge(@PathVariable String login,
+                                                     HttpServletRequest request,
+                                                     HttpSession session) {
+        var current = (User) request.getAttribute(Attribute.USER);
+        var self = login.equals(current.getLogin());
+        if (!self && !current.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of(Attribute.MESSAGE, Message.PURGE_FORBIDDEN));
+        }
+        if (self && current.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of(Attribute.MESSAGE, Message.PURGE_ADMIN_FORBIDDEN));
+        }
+        var result = new LinkedHashMap<String, Object>();
+        result.put(Attribute.REGISTERED, purgeService.purge(login));
+        result.putAll(purgeService.metrics());
+        if (self) {
+            session.invalidate();
+        }
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * Log out. And get redirected to redirect:/users/login page.
      * @param session HttpSession.
@@ -0,0 +1,130 @@
+package ru.job4j.todo.filter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import ru.job4j.todo.repository.RequestStatistics;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+
+/**
+ * Collects per-request SQL statistics, exposes them in X-Query-Statistics
+ * response header and logs requests exceeding statement budget of their endpoint.
+ * Budgets are configured by query.budget.* keys of application.properties.
+ */
+@Component
+@Order(0)
+public class QueryBudgetFilter extends HttpFilter {
+
+    public static final String HEADER = "X-Query-Statistics";
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryBudgetFilter.class.getName());
+
+    private final AntPathMatcher matcher = new AntPathMatcher();
+    private final Map<String, Integer> budgets;
+    private final int defaultBudget;
+
+    public QueryBudgetFilter(@Value("#{${query.budget.endpoints}}") Map<String, Integer> budgets,
+                             @Value("${query.budget.default}") int defaultBudget) {
+        this.budgets = budgets;
+        this.defaultBudget = defaultBudget;
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest request,
+                            HttpServletResponse response,
+                            FilterChain chain) throws IOException, ServletException {
+        var statistics = RequestStatistics.start();
+        try {
+            chain.doFilter(request, new StatisticsResponse(response, statistics));
+        } finally {
+            RequestStatistics.stop();
+            var uri = request.getRequestURI();
+            var budget = budgetOf(uri);
+            if (statistics.getStatements() > budget) {
+                LOG.warn("Query budget exceeded: {} {} used {} statements, budget {} ({})",
+                        request.getMethod(), uri, statistics.getStatements(), budget, statistics);
+            }
+        }
+    }
+
+    /**
+     * Statement budget of endpoint. Most specific matching pattern wins.
+     * @param uri request URI.
+     * @return budget.
+     */
+    int budgetOf(String uri) {
+        return budgets.keySet().stream()
+                .filter(pattern -> matcher.match(pattern, uri))
+                .min(matcher.getPatternComparator(uri))
+                .map(budgets::get)
+                .orElse(defaultBudget);
+    }
+
+    /**
+     * Response wrapper adding statistics header right before the response
+     * gets committed, while headers still can be set.
+     */
+    private static class StatisticsResponse extends HttpServletResponseWrapper {
+        private final RequestStatistics statistics;
+
+        StatisticsResponse(HttpServletResponse response, RequestStatistics statistics) {
+            super(response);
+            this.statistics = statistics;
+        }
+
+        private void addStatistics() {
+            if (!isCommitted()) {
+                setHeader(HEADER, statistics.toString());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addStatistics();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addStatistics();
+            return super.getWriter();
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            addStatistics();
+            super.sendRedirect(location);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addStatistics();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addStatistics();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addStatistics();
+            super.flushBuffer();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ru.job4j.todo.filter;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import ru.job4j.todo.repository.UnitOfWork;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Runs every reading GET request in one {@link UnitOfWork}, so all its reads,
+ * including rendering of the view, share one session and JDBC connection.
+ * GET requests of WRITE_PATHS delete or complete a task: like requests
+ * of other methods, they run without unit of work, so their writes take
+ * no second connection and no read sees a session loaded before the write.
+ * The connection is held until the view is rendered, so a slow render
+ * keeps it out of the pool for longer than separate commands would.
+ */
+@Component
+@Order(3)
+public class UnitOfWorkFilter extends HttpFilter {
+
+    private static final List<String> WRITE_PATHS = List.of(
+            "/tasks/delete/*", "/tasks/complete/*");
+
+    private final AntPathMatcher matcher = new AntPathMatcher();
+
+    @Override
+    protected void doFilter(HttpServletRequest request,
+                            HttpServletResponse response,
+                            FilterChain chain) throws IOException, ServletException {
+        if (!isReading(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        try (var unit = UnitOfWork.begin()) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * Request only reads, so it may run in unit of work.
+     * @param request request.
+     * @return true for GET request outside WRITE_PATHS.
+     */
+    boolean isReading(HttpServletRequest request) {
+        return HttpMethod.GET.matches(request.getMethod())
+                && WRITE_PATHS.stream()
+                .noneMatch(pattern -> matcher.match(pattern, request.getRequestURI()));
+    }
+}
@@ -1,11 +1,15 @@
 package ru.job4j.todo.model;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
 @Entity
 @Table(name = "categories")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 @AllArgsConstructor
 @NoArgsConstructor(force = true)
 @RequiredArgsConstructor
@@ -4,11 +4,15 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
 @Entity
 @Table(name = "priorities")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
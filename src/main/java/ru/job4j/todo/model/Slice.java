@@ -0,0 +1,22 @@
+package ru.job4j.todo.model;
+
+import java.util.List;
+
+/**
+ * One keyset page of items ordered by sort key and ID.
+ * @param items items of the page.
+ * @param lastId ID of the last item, used as a cursor for the next page.
+ * @param hasNext true if there are items after lastId.
+ * @param lastKey sort key of the last item, null if items are ordered by ID only.
+ * @param <T> item type.
+ */
+public record Slice<T>(List<T> items, int lastId, boolean hasNext, String lastKey) {
+
+    public Slice(List<T> items, int lastId, boolean hasNext) {
+        this(items, lastId, hasNext, null);
+    }
+
+    public static <T> Slice<T> empty() {
+        return new Slice<>(List.of(), 0, false);
+    }
+}
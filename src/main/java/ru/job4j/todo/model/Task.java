@@ -1,16 +1,34 @@
 package ru.job4j.todo.model;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import ru.job4j.todo.util.CategoryMask;
+import ru.job4j.todo.util.TaskQuery;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Entity
 @Table(name = "tasks")
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NamedEntityGraph(
+        name = TaskQuery.DETAIL_GRAPH,
+        attributeNodes = {
+                @NamedAttributeNode("priority"),
+                @NamedAttributeNode("user"),
+                @NamedAttributeNode("categories")
+        }
+)
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @ToString(onlyExplicitlyIncluded = true)
 @AllArgsConstructor
@@ -22,7 +40,8 @@ public class Task {
             = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tasks_seq")
+    @SequenceGenerator(name = "tasks_seq", sequenceName = "tasks_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     @ToString.Include
     private int id;
@@ -35,7 +54,8 @@ public class Task {
     @ToString.Include
     private boolean done;
 
-    @ManyToOne
+    @ManyToOne(
+            fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
@@ -46,19 +66,48 @@ public class Task {
 
     @ManyToMany(cascade = {CascadeType.PERSIST},
                 fetch = FetchType.LAZY)
+    @Fetch(FetchMode.SUBSELECT)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @OrderBy("id ASC")
     @JoinTable(
             name = "tasks_categories",
             joinColumns = @JoinColumn(name = "task_id"),
             inverseJoinColumns = @JoinColumn(name = "category_id")
     )
-    private List<Category> categories = new ArrayList<>();
+    private Set<Category> categories = new LinkedHashSet<>();
+
+    /**
+     * Categories encoded by {@link CategoryMask}, kept in step with categories by TaskStore.
+     */
+    @Column(name = "category_mask")
+    private long categoryMask;
+
+    /**
+     * Optimistic lock: every update of task increments it, and update
+     * based on a stale version is rejected.
+     */
+    @Version
+    private int version;
+
+    public Task(int id, String description, LocalDateTime created, boolean done,
+                User user, Priority priority, Set<Category> categories) {
+        this(id, description, created, done, user, priority, categories,
+                CategoryMask.of(categories), 0);
+    }
 
     @ToString.Include
     public String created() {
         return FORMATTER.format(created);
     }
 
+    /**
+     * Names of categories, decoded from mask unless there are too many categories.
+     * @return names joined by comma.
+     */
     public String categories() {
+        if (CategoryMask.isDecodable()) {
+            return String.join(", ", CategoryMask.names(categoryMask));
+        }
         return categories.stream()
                 .map(Category::getName)
                 .collect(Collectors.joining(", "));
@@ -0,0 +1,41 @@
+package ru.job4j.todo.model;
+
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Typed task list filter. Null or empty condition matches every task.
+ * @param done status.
+ * @param priorityIds task has one of priorities.
+ * @param categoryIds task has at least one of categories.
+ * @param createdFrom task created at or after.
+ * @param createdTo task created before.
+ * @param userId owner ID.
+ * @param text description contains text, case-insensitive.
+ * @param sort sort order.
+ * @param descending descending sort order.
+ */
+@Builder
+public record TaskFilter(Boolean done, Set<Integer> priorityIds, Set<Integer> categoryIds,
+                         LocalDateTime createdFrom, LocalDateTime createdTo, Integer userId,
+                         String text, TaskSort sort, boolean descending) {
+
+    public TaskFilter {
+        priorityIds = priorityIds == null ? Set.of() : Set.copyOf(priorityIds);
+        categoryIds = categoryIds == null ? Set.of() : Set.copyOf(categoryIds);
+        text = text == null || text.isBlank() ? null : text.strip();
+        sort = sort == null ? TaskSort.ID : sort;
+    }
+
+    /**
+     * Filter of plain task list: no condition but owner and default order.
+     * @return true if tasks are only narrowed by owner, if any, and ordered by ID ascending.
+     */
+    public boolean isPlain() {
+        return done == null && priorityIds.isEmpty() && categoryIds.isEmpty()
+                && createdFrom == null && createdTo == null
+                && text == null && sort == TaskSort.ID && !descending;
+    }
+}
@@ -0,0 +1,57 @@
+package ru.job4j.todo.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Query parameters of task list filter as entered by user.
+ * Dates are days in user's timezone.
+ */
+@Data
+@NoArgsConstructor
+public class TaskFilterForm {
+    private Boolean done;
+    private List<Integer> priority = new ArrayList<>();
+    private List<Integer> category = new ArrayList<>();
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+    private String q;
+    private TaskSort sort = TaskSort.ID;
+    private boolean desc;
+
+    /**
+     * Typed filter. Days are converted into UTC range from start of day
+     * "from" to end of day "to".
+     * @param userId owner ID, null for tasks of every user.
+     * @param zone user's timezone.
+     * @return filter.
+     */
+    public TaskFilter toFilter(Integer userId, ZoneId zone) {
+        return TaskFilter.builder()
+                .done(done)
+                .priorityIds(priority == null ? null : new HashSet<>(priority))
+                .categoryIds(category == null ? null : new HashSet<>(category))
+                .createdFrom(from == null ? null : toUtc(from, zone))
+                .createdTo(to == null ? null : toUtc(to.plusDays(1), zone))
+                .userId(userId)
+                .text(q)
+                .sort(sort)
+                .descending(desc)
+                .build();
+    }
+
+    private static LocalDateTime toUtc(LocalDate day, ZoneId zone) {
+        return day.atStartOfDay(zone).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+    }
+}
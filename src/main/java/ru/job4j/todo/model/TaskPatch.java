@@ -0,0 +1,26 @@
+package ru.job4j.todo.model;
+
+import java.util.List;
+
+/**
+ * Partial update of task: only fields which are not null are changed.
+ * @param version version of task the change is based on.
+ * @param description new description.
+ * @param done new status.
+ * @param priorityId new priority ID.
+ * @param categoryIds new category IDs.
+ */
+public record TaskPatch(Integer version, String description, Boolean done,
+                        Integer priorityId, List<Integer> categoryIds) {
+
+    /**
+     * Outcome of partial update.
+     */
+    public enum Result {
+        PATCHED, CONFLICT, NOT_FOUND, FAILED
+    }
+
+    public boolean isEmpty() {
+        return description == null && done == null && priorityId == null && categoryIds == null;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.job4j.todo.model;
+
+import ru.job4j.todo.util.CategoryMask;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Immutable row of task list page. Holds only displayed columns,
+ * so list pages do not hydrate managed Task, Priority, Category and User entities.
+ * @param id task ID.
+ * @param description task description.
+ * @param categoryNames names of task categories ordered by category ID.
+ * @param createdAt creation time.
+ * @param done status.
+ * @param priority priority name.
+ * @param owner login of the user who added the task.
+ */
+public record TaskRow(int id, String description, List<String> categoryNames,
+                      LocalDateTime createdAt, boolean done, String priority, String owner) {
+
+    private static final DateTimeFormatter FORMATTER
+            = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+
+    /**
+     * Constructor used by HQL constructor expression. Categories are added by
+     * {@link #withCategoryNames(List)} since a collection cannot be projected.
+     */
+    public TaskRow(int id, String description, LocalDateTime createdAt,
+                   boolean done, String priority, String owner) {
+        this(id, description, List.of(), createdAt, done, priority, owner);
+    }
+
+    /**
+     * Constructor used by HQL constructor expression when category names
+     * are decoded from category mask.
+     */
+    public TaskRow(int id, String description, LocalDateTime createdAt,
+                   boolean done, String priority, String owner, long categoryMask) {
+        this(id, description, CategoryMask.names(categoryMask), createdAt, done, priority, owner);
+    }
+
+    public TaskRow withCategoryNames(List<String> names) {
+        return new TaskRow(id, description, List.copyOf(names), createdAt, done, priority, owner);
+    }
+
+    public TaskRow withCreatedAt(LocalDateTime time) {
+        return new TaskRow(id, description, categoryNames, time, done, priority, owner);
+    }
+
+    public String created() {
+        return FORMATTER.format(createdAt);
+    }
+
+    public String categories() {
+        return String.join(", ", categoryNames);
+    }
+}
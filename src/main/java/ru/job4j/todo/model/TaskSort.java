@@ -0,0 +1,45 @@
+package ru.job4j.todo.model;
+
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+/**
+ * Sort order of task list. Ties are broken by task ID, so that
+ * (sort key, ID) of the last row is a keyset cursor for the next page.
+ */
+public enum TaskSort {
+    ID("t.id", key -> null),
+    CREATED("t.created", LocalDateTime::parse),
+    PRIORITY("p.position", Integer::valueOf);
+
+    private final String path;
+    private final Function<String, Object> parser;
+
+    TaskSort(String path, Function<String, Object> parser) {
+        this.path = path;
+        this.parser = parser;
+    }
+
+    /**
+     * HQL path of sort key, null for ID.
+     * @return path.
+     */
+    public String path() {
+        return this == ID ? null : path;
+    }
+
+    /**
+     * Parse sort key of cursor.
+     * @param key sort key as string.
+     * @return sort key, null if sorted by ID or key malformed.
+     */
+    public Object parseKey(String key) {
+        Object result = null;
+        try {
+            result = key == null ? null : parser.apply(key);
+        } catch (RuntimeException exception) {
+            result = null;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,9 @@
+package ru.job4j.todo.model;
+
+/**
+ * Task suggested while user types its description.
+ * @param id task ID.
+ * @param description task description.
+ */
+public record TaskSuggestion(int id, String description) {
+}
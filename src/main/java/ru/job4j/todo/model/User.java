@@ -1,11 +1,15 @@
 package ru.job4j.todo.model;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
@@ -26,4 +30,11 @@ public class User {
 
     private String timezone;
 
+    /**
+     * Administrator manages other users. The flag is granted only in DB
+     * and never written by the application, so it can not be registered.
+     */
+    @Column(insertable = false, updatable = false)
+    private boolean admin;
+
 }
\ No newline at end of file
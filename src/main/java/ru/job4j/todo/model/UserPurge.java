@@ -0,0 +1,10 @@
+package ru.job4j.todo.model;
+
+/**
+ * Unfinished purge of user and all their tasks.
+ * @param userId ID of purged user.
+ * @param login login of purged user.
+ * @param tasksDeleted number of tasks deleted so far.
+ */
+public record UserPurge(int userId, String login, long tasksDeleted) {
+}
@@ -2,11 +2,20 @@ package ru.job4j.todo.repository;
 
 import lombok.AllArgsConstructor;
 import net.jcip.annotations.ThreadSafe;
+import org.hibernate.FlushMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
 import org.springframework.stereotype.Repository;
+import ru.job4j.todo.model.Slice;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -36,7 +45,7 @@ public class CrudRepository {
             }
             return sq.uniqueResultOptional();
         };
-        return tx(command);
+        return readOnly(command);
     }
 
     public boolean isExecuted(String query, Map<String, Object> args) {
@@ -54,7 +63,7 @@ public class CrudRepository {
         Function<Session, List<T>> command = session -> session
                 .createQuery(query, cl)
                 .list();
-        return tx(command);
+        return readOnly(command);
     }
 
     public <T> List<T> query(String query, Class<T> cl, Map<String, Object> args) {
@@ -65,16 +74,140 @@ public class CrudRepository {
             }
             return sq.list();
         };
-        return tx(command);
+        return readOnly(command);
+    }
+
+    public <T> List<T> query(String query, Class<T> cl, Map<String, Object> args, int limit) {
+        Function<Session, List<T>> command = session -> {
+            var sq = session.createQuery(query, cl);
+            for (Map.Entry<String, Object> arg : args.entrySet()) {
+                sq.setParameter(arg.getKey(), arg.getValue());
+            }
+            return sq.setMaxResults(limit).list();
+        };
+        return readOnly(command);
+    }
+
+    /**
+     * Number of rows returned to repository by command result.
+     * @param result command result.
+     * @return number of rows.
+     */
+    private long rows(Object result) {
+        long rows = 0;
+        if (result instanceof Collection<?> collection) {
+            rows = collection.size();
+        } else if (result instanceof Optional<?> optional && optional.isPresent()) {
+            rows = 1;
+        } else if (result instanceof Slice<?> slice) {
+            rows = slice.items().size();
+        }
+        return rows;
+    }
+
+    /**
+     * Stream query result rows to consumer through stateless session and
+     * forward-only cursor, so no row stays in memory after consumer handled it.
+     * @param query HQL query.
+     * @param args query parameters.
+     * @param fetchSize JDBC fetch size.
+     * @param consumer row consumer.
+     * @return number of rows streamed.
+     */
+    public long scroll(String query, Map<String, Object> args,
+                       int fetchSize, Consumer<Object[]> consumer) {
+        var start = System.nanoTime();
+        var count = 0L;
+        try (StatelessSession session = sf.openStatelessSession()) {
+            RequestStatistics.connectionAcquired();
+            Transaction transaction = session.beginTransaction();
+            try {
+                var sq = session.createQuery(query, Object[].class);
+                for (Map.Entry<String, Object> arg : args.entrySet()) {
+                    sq.setParameter(arg.getKey(), arg.getValue());
+                }
+                try (ScrollableResults results = sq
+                        .setFetchSize(fetchSize)
+                        .setReadOnly(true)
+                        .scroll(ScrollMode.FORWARD_ONLY)) {
+                    while (results.next()) {
+                        consumer.accept(results.get());
+                        count++;
+                    }
+                }
+                transaction.commit();
+            } catch (Exception exception) {
+                transaction.rollback();
+                throw exception;
+            }
+        }
+        RequestStatistics.transactionCompleted(System.nanoTime() - start, count, 0);
+        return count;
+    }
+
+    public boolean isPostgreSql() {
+        return sf.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQL81Dialect;
     }
 
     public <T> T tx(Function<Session, T> command) {
-        Session session = sf.openSession();
+        return execute(command, false);
+    }
+
+    /**
+     * Run command in read-only mode: entities are loaded without snapshots
+     * for dirty checking, nothing is flushed at commit and JDBC connection
+     * is marked read-only for the transaction. PostgreSQL driver refuses
+     * to change the flag inside transaction, so session holds its connection
+     * until closed and the previous flag is restored on it after commit,
+     * before the connection returns to the pool.
+     * Within {@link UnitOfWork} command joins its session and transaction.
+     * Use for commands that never modify loaded entities.
+     * @param command command.
+     * @param <T> result type.
+     * @return command result.
+     */
+    public <T> T readOnly(Function<Session, T> command) {
+        var unit = UnitOfWork.current();
+        if (unit.isPresent()) {
+            var session = unit.get().session(sf);
+            if (session.isPresent()) {
+                return joined(unit.get(), session.get(), command);
+            }
+        }
+        return execute(command, true);
+    }
+
+    private <T> T joined(UnitOfWork unit, Session session, Function<Session, T> command) {
+        var start = System.nanoTime();
+        try {
+            var before = session.getStatistics().getEntityCount();
+            T rsl = command.apply(session);
+            RequestStatistics.commandCompleted(System.nanoTime() - start, rows(rsl),
+                    session.getStatistics().getEntityCount() - before);
+            return rsl;
+        } catch (Exception exception) {
+            unit.fail();
+            throw exception;
+        }
+    }
+
+    private <T> T execute(Function<Session, T> command, boolean readOnly) {
+        var start = System.nanoTime();
+        Session session = readOnly ? openReadOnly(sf) : sf.openSession();
+        RequestStatistics.connectionAcquired();
         Transaction transaction = null;
+        var wasReadOnly = false;
         try {
+            if (readOnly) {
+                wasReadOnly = setReadOnly(session, true);
+            }
             transaction = session.beginTransaction();
             T rsl = command.apply(session);
+            var entities = session.getStatistics().getEntityCount();
             transaction.commit();
+            RequestStatistics.transactionCompleted(
+                    System.nanoTime() - start, rows(rsl), entities);
             return rsl;
         } catch (Exception exception) {
             if (transaction != null) {
@@ -82,7 +215,44 @@ public class CrudRepository {
             }
             throw exception;
         } finally {
-            session.close();
+            try {
+                if (readOnly) {
+                    setReadOnly(session, wasReadOnly);
+                }
+            } finally {
+                session.close();
+            }
         }
     }
+
+    /**
+     * Open session for read-only commands: entities are loaded read-only,
+     * nothing is flushed, and JDBC connection is held until the session
+     * is closed, so that its read-only flag can be restored after commit.
+     * @param factory session factory.
+     * @return session.
+     */
+    static Session openReadOnly(SessionFactory factory) {
+        var session = factory.withOptions()
+                .connectionHandlingMode(
+                        PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_HOLD)
+                .openSession();
+        session.setDefaultReadOnly(true);
+        session.setHibernateFlushMode(FlushMode.MANUAL);
+        return session;
+    }
+
+    /**
+     * Set read-only flag of session's JDBC connection.
+     * @param session session.
+     * @param readOnly new flag.
+     * @return previous flag.
+     */
+    static boolean setReadOnly(Session session, boolean readOnly) {
+        return session.doReturningWork(connection -> {
+            var previous = connection.isReadOnly();
+            connection.setReadOnly(readOnly);
+            return previous;
+        });
+    }
 }
\ No newline at end of file
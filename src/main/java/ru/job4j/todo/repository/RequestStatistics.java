@@ -0,0 +1,119 @@
+package ru.job4j.todo.repository;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counters of database work done by one thread on behalf of one HTTP request:
+ * prepared statements, JDBC connections taken from pool, rows returned
+ * by repositories, entities loaded into persistence contexts and time
+ * spent in {@link CrudRepository#tx}.
+ * Collection is active between {@link #start()} and {@link #stop()};
+ * outside of it all hooks are no-op.
+ * @author Lenar Sharipov
+ * @version 1.0
+ */
+@NotThreadSafe
+public class RequestStatistics {
+
+    private static final ThreadLocal<RequestStatistics> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private int connections;
+    private int transactions;
+    private long rows;
+    private long entities;
+    private long txNanos;
+
+    /**
+     * Start collecting statistics in current thread.
+     * @return fresh statistics bound to current thread.
+     */
+    public static RequestStatistics start() {
+        var statistics = new RequestStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    /**
+     * Stop collecting statistics in current thread.
+     */
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Statistics bound to current thread.
+     * @return Optional of statistics, empty if collection not started.
+     */
+    public static Optional<RequestStatistics> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    static void statementPrepared() {
+        var statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.statements++;
+        }
+    }
+
+    static void connectionAcquired() {
+        var statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.connections++;
+        }
+    }
+
+    static void transactionCompleted(long nanos, long rows, long entities) {
+        var statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.transactions++;
+        }
+        commandCompleted(nanos, rows, entities);
+    }
+
+    /**
+     * Command completed within transaction shared with other commands.
+     */
+    static void commandCompleted(long nanos, long rows, long entities) {
+        var statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.txNanos += nanos;
+            statistics.rows += rows;
+            statistics.entities += entities;
+        }
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public int getTransactions() {
+        return transactions;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getEntities() {
+        return entities;
+    }
+
+    public long getTxMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(txNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "statements=%d; connections=%d; transactions=%d; rows=%d; entities=%d; tx-ms=%d",
+                statements, connections, transactions, rows, entities, getTxMillis());
+    }
+}
@@ -0,0 +1,18 @@
+package ru.job4j.todo.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate statement inspector counting SQL statements per request.
+ * Registered by hibernate.session_factory.statement_inspector property.
+ * @author Lenar Sharipov
+ * @version 1.0
+ */
+public class StatementCounter implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        RequestStatistics.statementPrepared();
+        return sql;
+    }
+}
@@ -0,0 +1,94 @@
+package ru.job4j.todo.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import net.jcip.annotations.ThreadSafe;
+import ru.job4j.todo.model.Task;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.IntFunction;
+
+/**
+ * Bounded cache of detached task snapshots keyed by ID, in front of DB
+ * and Hibernate second-level cache. Eviction is W-TinyLFU by approximate
+ * size of a snapshot in bytes. Callers always get their own copy, so that
+ * changes of a returned task, e.g. by TimezoneUtil, never reach the cache.
+ * @author Lenar Sharipov
+ * @version 1.0
+ */
+@ThreadSafe
+public class TaskCache {
+    private static final int TASK_WEIGHT = 256;
+    private static final int CHAR_WEIGHT = 2;
+    private static final int CATEGORY_WEIGHT = 16;
+
+    private final Cache<Integer, Task> cache;
+
+    public TaskCache(long maxWeight, Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Integer id, Task task) -> weigh(task))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get copy of cached task or load it. Concurrent loads of one ID
+     * are merged into one, invalidation waits for running load of its ID.
+     * @param id ID.
+     * @param loader loads task from DB, null if absent.
+     * @return copy of task or empty optional.
+     */
+    public Optional<Task> get(int id, IntFunction<Task> loader) {
+        return Optional.ofNullable(cache.get(id, key -> snapshot(loader.apply(key))))
+                .map(TaskCache::snapshot);
+    }
+
+    public void invalidate(int id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll(Collection<Integer> ids) {
+        cache.invalidateAll(ids);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Cache metrics.
+     * @return hits, misses, evictions, size and hit ratio.
+     */
+    public Map<String, Object> metrics() {
+        var stats = cache.stats();
+        var result = new LinkedHashMap<String, Object>();
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("evictions", stats.evictionCount());
+        result.put("size", cache.estimatedSize());
+        result.put("hitRatio", stats.hitRate());
+        return result;
+    }
+
+    private static Task snapshot(Task task) {
+        if (task == null) {
+            return null;
+        }
+        return new Task(task.getId(), task.getDescription(), task.getCreated(), task.isDone(),
+                task.getUser(), task.getPriority(), new LinkedHashSet<>(task.getCategories()),
+                task.getCategoryMask(), task.getVersion());
+    }
+
+    private static int weigh(Task task) {
+        var description = task.getDescription() == null ? 0 : task.getDescription().length();
+        return TASK_WEIGHT + description * CHAR_WEIGHT
+                + task.getCategories().size() * CATEGORY_WEIGHT;
+    }
+}
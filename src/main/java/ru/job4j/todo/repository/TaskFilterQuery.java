@@ -0,0 +1,196 @@
+package ru.job4j.todo.repository;
+
+import ru.job4j.todo.model.TaskFilter;
+import ru.job4j.todo.model.TaskSort;
+import ru.job4j.todo.util.CategoryMask;
+import ru.job4j.todo.util.Entry;
+import ru.job4j.todo.util.Key;
+import ru.job4j.todo.util.TaskQuery;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles task filter into HQL with bind parameters. Query text depends
+ * only on shape of the filter, i.e. which conditions are set and the sort
+ * order, never on values, so it is built once per shape and Hibernate
+ * query plan cache serves every later filter of the same shape.
+ * Every condition is a sargable predicate on an indexed column of tasks,
+ * except description text, which only narrows rows found by the others.
+ */
+final class TaskFilterQuery {
+
+    private static final Map<Shape, String> QUERIES = new ConcurrentHashMap<>();
+    private static final Map<Shape, String> COUNT_QUERIES = new ConcurrentHashMap<>();
+
+    private TaskFilterQuery() {
+    }
+
+    /**
+     * Shape of filter: which conditions are set and the sort order.
+     * Categories are matched by category mask when every one of them fits
+     * into it, and by tasks_categories otherwise.
+     */
+    record Shape(boolean done, boolean priorities, boolean categories, boolean categoryMask,
+                 boolean from, boolean to, boolean user, boolean text, TaskSort sort,
+                 boolean descending, boolean after) {
+    }
+
+    static Shape shapeOf(TaskFilter filter, Object lastKey, int lastId) {
+        var after = filter.sort() == TaskSort.ID
+                ? !filter.descending() || lastId > 0
+                : lastKey != null;
+        return shapeOf(filter, after);
+    }
+
+    /**
+     * Shape of filter for counting its tasks: sort order and page do not matter.
+     * @param filter filter.
+     * @return shape.
+     */
+    static Shape countShapeOf(TaskFilter filter) {
+        return shapeOf(TaskFilter.builder().done(filter.done())
+                .priorityIds(filter.priorityIds()).categoryIds(filter.categoryIds())
+                .createdFrom(filter.createdFrom()).createdTo(filter.createdTo())
+                .userId(filter.userId()).text(filter.text()).build(), false);
+    }
+
+    private static Shape shapeOf(TaskFilter filter, boolean after) {
+        var categories = !filter.categoryIds().isEmpty();
+        return new Shape(filter.done() != null, !filter.priorityIds().isEmpty(), categories,
+                categories && CategoryMask.fitAll(filter.categoryIds()),
+                filter.createdFrom() != null, filter.createdTo() != null,
+                filter.userId() != null, filter.text() != null,
+                filter.sort(), filter.descending(), after);
+    }
+
+    /**
+     * HQL of task rows matching filter of the shape.
+     * Row is (id, description, created, done, priority name, owner login, sort key).
+     * @param shape filter shape.
+     * @return HQL.
+     */
+    static String hql(Shape shape) {
+        return QUERIES.computeIfAbsent(shape, TaskFilterQuery::compile);
+    }
+
+    /**
+     * HQL of number of tasks matching filter of the shape.
+     * @param shape filter shape of {@link #countShapeOf(TaskFilter)}.
+     * @return HQL.
+     */
+    static String countHql(Shape shape) {
+        return COUNT_QUERIES.computeIfAbsent(shape, key -> {
+            var conditions = conditions(key);
+            return conditions.isEmpty()
+                    ? TaskQuery.COUNT_TASKS
+                    : TaskQuery.COUNT_TASKS + " WHERE " + String.join(" AND ", conditions);
+        });
+    }
+
+    /**
+     * Bind parameters of filter.
+     * @param filter filter.
+     * @param shape shape of filter.
+     * @param lastKey sort key of the last row of previous page.
+     * @param lastId ID of the last row of previous page.
+     * @return parameters by name.
+     */
+    static Map<String, Object> args(TaskFilter filter, Shape shape, Object lastKey, int lastId) {
+        var result = new HashMap<String, Object>();
+        if (shape.done()) {
+            result.put(Key.F_DONE, filter.done());
+        }
+        if (shape.priorities()) {
+            result.put(Key.F_PRIORITY_IDS, filter.priorityIds());
+        }
+        if (shape.categoryMask()) {
+            result.put(Key.F_CATEGORY_MASK, CategoryMask.ofIds(filter.categoryIds()));
+        } else if (shape.categories()) {
+            result.put(Key.F_CATEGORY_IDS, filter.categoryIds());
+        }
+        if (shape.from()) {
+            result.put(Key.F_CREATED_FROM, filter.createdFrom());
+        }
+        if (shape.to()) {
+            result.put(Key.F_CREATED_TO, filter.createdTo());
+        }
+        if (shape.user()) {
+            result.put(Key.F_USER_ID, filter.userId());
+        }
+        if (shape.text()) {
+            result.put(Key.F_TEXT, contains(filter.text()));
+        }
+        if (shape.after()) {
+            result.put(Key.F_LAST_ID, lastId);
+            if (shape.sort() != TaskSort.ID) {
+                result.put(Key.F_LAST_KEY, lastKey);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * LIKE pattern of lowercase description containing text,
+     * with wildcards of text escaped by '!'.
+     * @param text text.
+     * @return pattern.
+     */
+    static String contains(String text) {
+        return "%" + text.toLowerCase()
+                .replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+    }
+
+    private static String compile(Shape shape) {
+        var conditions = conditions(shape);
+        var direction = shape.descending() ? "DESC" : "ASC";
+        var compare = shape.descending() ? "<" : ">";
+        var key = shape.sort().path();
+        if (shape.after()) {
+            conditions.add(key == null
+                    ? String.format(TaskQuery.ID_AFTER, compare)
+                    : String.format(TaskQuery.KEY_AFTER, key, compare));
+        }
+        var order = new ArrayList<String>();
+        if (key != null) {
+            order.add(String.format(Entry.TWO_ENTRIES, key, direction));
+        }
+        order.add(String.format(Entry.TWO_ENTRIES, "t.id", direction));
+        var hql = new StringBuilder(TaskQuery.SELECT_FILTERED_ROW);
+        if (!conditions.isEmpty()) {
+            hql.append("WHERE ").append(String.join(" AND ", conditions)).append(' ');
+        }
+        return hql.append("ORDER BY ").append(String.join(", ", order)).toString();
+    }
+
+    private static List<String> conditions(Shape shape) {
+        var conditions = new ArrayList<String>();
+        if (shape.done()) {
+            conditions.add(TaskQuery.DONE_IS);
+        }
+        if (shape.priorities()) {
+            conditions.add(TaskQuery.PRIORITY_IN);
+        }
+        if (shape.categoryMask()) {
+            conditions.add(TaskQuery.CATEGORY_MASK_ANY);
+        } else if (shape.categories()) {
+            conditions.add(TaskQuery.CATEGORY_IN);
+        }
+        if (shape.from()) {
+            conditions.add(TaskQuery.CREATED_FROM);
+        }
+        if (shape.to()) {
+            conditions.add(TaskQuery.CREATED_TO);
+        }
+        if (shape.user()) {
+            conditions.add(TaskQuery.USER_IS);
+        }
+        if (shape.text()) {
+            conditions.add(TaskQuery.DESCRIPTION_LIKE);
+        }
+        return conditions;
+    }
+}
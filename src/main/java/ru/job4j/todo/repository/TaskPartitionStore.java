@@ -0,0 +1,142 @@
+package ru.job4j.todo.repository;
+
+import lombok.AllArgsConstructor;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+import ru.job4j.todo.model.Task;
+import ru.job4j.todo.util.Message;
+import ru.job4j.todo.util.PartitionQuery;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Monthly range partitions of tasks table by creation time. Partitions exist
+ * on PostgreSQL only; on other databases tasks table is a plain table and
+ * every method is a no-op.
+ * @author Lenar Sharipov
+ * @version 1.0
+ */
+@ThreadSafe
+@Repository
+@AllArgsConstructor
+public class TaskPartitionStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TaskPartitionStore.class.getName());
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final CrudRepository crudRepository;
+
+    /**
+     * Name of partition holding tasks created in month.
+     * @param month month.
+     * @return partition name, e.g. tasks_2024_01.
+     */
+    public static String nameOf(YearMonth month) {
+        return PartitionQuery.PREFIX + SUFFIX.format(month);
+    }
+
+    /**
+     * Month of partition.
+     * @param name partition name.
+     * @return month.
+     */
+    public static YearMonth monthOf(String name) {
+        return YearMonth.parse(name.substring(PartitionQuery.PREFIX.length()), SUFFIX);
+    }
+
+    public boolean isSupported() {
+        return crudRepository.isPostgreSql();
+    }
+
+    /**
+     * List monthly partitions of tasks table, default partition excluded.
+     * @return partition names in ascending order.
+     */
+    public List<String> findAll() {
+        List<String> result = Collections.emptyList();
+        if (!isSupported()) {
+            return result;
+        }
+        try {
+            result = crudRepository.readOnly(session -> {
+                List<?> names = session
+                        .createNativeQuery(PartitionQuery.SELECT_PARTITIONS)
+                        .getResultList();
+                return names.stream().map(String.class::cast).toList();
+            });
+        } catch (Exception exception) {
+            LOG.error(Message.PARTITIONS_NOT_FOUND, exception);
+        }
+        return result;
+    }
+
+    /**
+     * Create partition for month unless it exists.
+     * @param month month.
+     * @return true if partition exists after the call.
+     */
+    public boolean create(YearMonth month) {
+        if (!isSupported()) {
+            return false;
+        }
+        return execute(Message.PARTITION_NOT_CREATED,
+                String.format(PartitionQuery.CREATE_PARTITION, nameOf(month),
+                        month.atDay(1).atStartOfDay(),
+                        month.plusMonths(1).atDay(1).atStartOfDay()));
+    }
+
+    /**
+     * Detach partition of month from tasks table. Detached partition stays
+     * as a standalone table, its tasks are no longer visible to application,
+     * so second-level cache is evicted; task cache and typeahead index are
+     * left to {@link TaskStore#evictAll()}. Detach fires no delete trigger, so the
+     * tasks_categories rows of its tasks are deleted in the same transaction;
+     * categories of detached tasks stay in their category_mask column.
+     * @param month month.
+     * @return true if detached.
+     */
+    public boolean detach(YearMonth month) {
+        if (!isSupported()) {
+            return false;
+        }
+        var name = nameOf(month);
+        var result = execute(Message.PARTITION_NOT_DETACHED,
+                String.format(PartitionQuery.DETACH_PARTITION, name),
+                String.format(PartitionQuery.DELETE_PARTITION_CATEGORIES, name));
+        if (result) {
+            crudRepository.run(session -> {
+                var cache = session.getSessionFactory().getCache();
+                cache.evictEntityData(Task.class);
+                cache.evictCollectionData();
+                cache.evictQueryRegions();
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Execute statements in one transaction on plain JDBC connection, bypassing
+     * Hibernate query spaces, so caches of unrelated tables are not invalidated.
+     */
+    private boolean execute(String message, String... statements) {
+        var result = true;
+        try {
+            crudRepository.run(session -> session.doWork(connection -> {
+                try (var statement = connection.createStatement()) {
+                    for (var sql : statements) {
+                        statement.execute(sql);
+                    }
+                }
+            }));
+        } catch (Exception exception) {
+            result = false;
+            LOG.error(message, exception);
+        }
+        return result;
+    }
+}
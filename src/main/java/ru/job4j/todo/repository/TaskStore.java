@@ -2,17 +2,44 @@ package ru.job4j.todo.repository;
 
 import lombok.AllArgsConstructor;
 import net.jcip.annotations.ThreadSafe;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.StaleStateException;
+import org.hibernate.graph.GraphSemantic;
+import org.hibernate.query.Query;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
+import ru.job4j.todo.model.Category;
+import ru.job4j.todo.model.Priority;
+import ru.job4j.todo.model.Slice;
 import ru.job4j.todo.model.Task;
+import ru.job4j.todo.model.TaskFilter;
+import ru.job4j.todo.model.TaskPatch;
+import ru.job4j.todo.model.TaskRow;
+import ru.job4j.todo.model.TaskSuggestion;
+import ru.job4j.todo.model.User;
 
+import javax.persistence.LockModeType;
+import javax.persistence.OptimisticLockException;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
+import ru.job4j.todo.util.CategoryMask;
+import ru.job4j.todo.util.CategoryQuery;
 import ru.job4j.todo.util.Entry;
 import ru.job4j.todo.util.Key;
 import ru.job4j.todo.util.Message;
@@ -33,6 +60,14 @@ public class TaskStore {
 
     private final CrudRepository crudRepository;
     private static final int DAYS_RANGE = 1;
+    private static final int EXPORT_FETCH_SIZE = 500;
+    private static final int BATCH_SIZE = 50;
+    private static final int IDS_CHUNK = 500;
+    private static final long CACHE_MAX_WEIGHT = 8L * 1024 * 1024;
+    private static final Duration CACHE_TTL = Duration.ofMinutes(10);
+    private static final long SUGGEST_MAX_BYTES = 64L * 1024 * 1024;
+    private final TaskCache cache = new TaskCache(CACHE_MAX_WEIGHT, CACHE_TTL);
+    private final TaskSuggestIndex suggestions = new TaskSuggestIndex(SUGGEST_MAX_BYTES);
 
     /**
      * Create and save new task.
@@ -41,31 +76,209 @@ public class TaskStore {
      */
     public Optional<Task> save(Task task) {
         Optional<Task> result = Optional.empty();
+        task.setCategoryMask(CategoryMask.of(task.getCategories()));
         try {
             crudRepository.run(session -> session.save(task));
             result = Optional.of(task);
         } catch (Exception exception) {
             LOG.error(Message.TASK_NOT_SAVED, exception);
         }
+        cache.invalidate(task.getId());
+        result.ifPresent(saved -> suggestions.put(saved.getId(), saved.getDescription()));
         return result;
     }
 
     /**
-     * Update task.
-     * @param task task.
-     * @return true/false.
+     * Save tasks in one transaction. Inserts of tasks and their categories
+     * are sent in JDBC batches; session is flushed and cleared every batch,
+     * so persistence context does not grow with number of tasks.
+     * @param tasks tasks.
+     * @return number of saved tasks, 0 if nothing saved.
+     */
+    public int saveAll(List<Task> tasks) {
+        var result = 0;
+        try {
+            crudRepository.run(session -> {
+                for (int i = 0; i < tasks.size(); i++) {
+                    var task = tasks.get(i);
+                    task.setCategoryMask(CategoryMask.of(task.getCategories()));
+                    session.save(task);
+                    if ((i + 1) % BATCH_SIZE == 0) {
+                        session.flush();
+                        session.clear();
+                    }
+                }
+            });
+            result = tasks.size();
+            tasks.forEach(task -> suggestions.put(task.getId(), task.getDescription()));
+        } catch (Exception exception) {
+            LOG.error(Message.TASKS_NOT_SAVED, exception);
+        }
+        return result;
+    }
+
+    /**
+     * Update task. Stored task is loaded with its categories, from
+     * second-level cache when present there, and only submitted values
+     * that differ are copied onto it: changed columns are updated and
+     * only added or removed categories are inserted into or deleted from
+     * tasks_categories. Unchanged task is not written at all.
+     * Submitted version must match stored one, and the versioned update
+     * rejects a change committed between load and flush.
+     * @param task task with categories given by ID and version it is based on.
+     * @return PATCHED, CONFLICT on stale version, NOT_FOUND or FAILED.
+     */
+    public TaskPatch.Result update(Task task) {
+        var result = TaskPatch.Result.FAILED;
+        task.setCategoryMask(CategoryMask.of(task.getCategories()));
+        try {
+            result = crudRepository.tx(session -> {
+                var stored = session.find(Task.class, task.getId(), Map.of(
+                        GraphSemantic.FETCH.getJpaHintName(),
+                        session.getEntityGraph(TaskQuery.DETAIL_GRAPH)));
+                if (stored == null) {
+                    return TaskPatch.Result.NOT_FOUND;
+                }
+                if (stored.getVersion() != task.getVersion()) {
+                    return TaskPatch.Result.CONFLICT;
+                }
+                copyChanges(session, task, stored);
+                return TaskPatch.Result.PATCHED;
+            });
+            if (result == TaskPatch.Result.PATCHED) {
+                suggestions.put(task.getId(), task.getDescription());
+            }
+        } catch (OptimisticLockException | StaleStateException exception) {
+            result = TaskPatch.Result.CONFLICT;
+        } catch (Exception exception) {
+            LOG.error(Message.TASK_NOT_UPDATED, exception);
+        }
+        cache.invalidate(task.getId());
+        return result;
+    }
+
+    /**
+     * Change only fields given by patch, provided task still has version
+     * the patch is based on. Version is checked and incremented by the
+     * update statement itself, so nothing is read and nothing is locked
+     * before it; only a rejected patch reads version to tell a stale
+     * patch from a missing task. Categories are replaced by deleting and
+     * inserting only differing rows of tasks_categories.
+     * @param id task ID.
+     * @param patch patch.
+     * @return PATCHED, CONFLICT on stale version, NOT_FOUND or FAILED.
      */
-    public boolean update(Task task) {
-        var result = true;
+    public TaskPatch.Result patch(int id, TaskPatch patch) {
+        var result = TaskPatch.Result.FAILED;
         try {
-            crudRepository.run(session -> session.merge(task));
+            result = crudRepository.tx(session -> {
+                var assignments = new ArrayList<String>();
+                var args = new HashMap<String, Object>();
+                args.put(Key.F_ID, id);
+                args.put(Key.F_VERSION, patch.version());
+                if (patch.description() != null) {
+                    assignments.add(TaskQuery.SET_DESCRIPTION);
+                    args.put(Key.F_DESCRIPTION, patch.description());
+                }
+                if (patch.done() != null) {
+                    assignments.add(TaskQuery.SET_DONE);
+                    args.put(Key.F_DONE, patch.done());
+                }
+                if (patch.priorityId() != null) {
+                    assignments.add(TaskQuery.SET_PRIORITY);
+                    args.put(Key.F_PRIORITY,
+                            session.getReference(Priority.class, patch.priorityId()));
+                }
+                if (patch.categoryIds() != null) {
+                    assignments.add(TaskQuery.SET_CATEGORY_MASK);
+                    args.put(Key.F_CATEGORY_MASK, CategoryMask.ofIds(patch.categoryIds()));
+                }
+                var query = session.createQuery(
+                        String.format(TaskQuery.PATCH, String.join(", ", assignments)));
+                args.forEach(query::setParameter);
+                if (query.executeUpdate() == 0) {
+                    return session.createQuery(TaskQuery.SELECT_VERSION, Integer.class)
+                            .setParameter(Key.F_ID, id)
+                            .uniqueResultOptional()
+                            .map(version -> TaskPatch.Result.CONFLICT)
+                            .orElse(TaskPatch.Result.NOT_FOUND);
+                }
+                if (patch.categoryIds() != null) {
+                    replaceCategories(session, id, patch.categoryIds());
+                }
+                return TaskPatch.Result.PATCHED;
+            });
+            if (result == TaskPatch.Result.PATCHED && patch.description() != null) {
+                suggestions.put(id, patch.description());
+            }
         } catch (Exception exception) {
-            result = false;
             LOG.error(Message.TASK_NOT_UPDATED, exception);
         }
+        cache.invalidate(id);
         return result;
     }
 
+    private static void replaceCategories(Session session, int id, List<Integer> categoryIds) {
+        if (categoryIds.isEmpty()) {
+            session.createNativeQuery(TaskQuery.DELETE_CATEGORIES_OF_TASK)
+                    .addSynchronizedQuerySpace(TaskQuery.CATEGORIES_TABLE)
+                    .setParameter(Key.F_ID, id)
+                    .executeUpdate();
+            return;
+        }
+        session.createNativeQuery(String.format(Entry.TWO_ENTRIES,
+                        TaskQuery.DELETE_CATEGORIES_OF_TASK, TaskQuery.AND_CATEGORY_NOT_IN))
+                .addSynchronizedQuerySpace(TaskQuery.CATEGORIES_TABLE)
+                .setParameter(Key.F_ID, id)
+                .setParameterList(Key.F_CATEGORY_IDS, categoryIds)
+                .executeUpdate();
+        session.createNativeQuery(TaskQuery.INSERT_MISSING_CATEGORIES)
+                .addSynchronizedQuerySpace(TaskQuery.CATEGORIES_TABLE)
+                .setParameter(Key.F_ID, id)
+                .setParameterList(Key.F_CATEGORY_IDS, categoryIds)
+                .executeUpdate();
+    }
+
+    /**
+     * Copy values of submitted task differing from stored one.
+     * Owner, priority and added categories are set as references by ID,
+     * so none of them is loaded.
+     * @param session session.
+     * @param task submitted task.
+     * @param stored managed stored task.
+     */
+    private static void copyChanges(Session session, Task task, Task stored) {
+        if (!Objects.equals(task.getDescription(), stored.getDescription())) {
+            stored.setDescription(task.getDescription());
+        }
+        if (task.getCreated() != null && !task.getCreated().equals(stored.getCreated())) {
+            stored.setCreated(task.getCreated());
+        }
+        if (task.isDone() != stored.isDone()) {
+            stored.setDone(task.isDone());
+        }
+        var user = task.getUser();
+        if (user != null && (stored.getUser() == null
+                || user.getId() != stored.getUser().getId())) {
+            stored.setUser(session.getReference(User.class, user.getId()));
+        }
+        var priorityId = task.getPriority() == null ? null : task.getPriority().getId();
+        if (priorityId != null && (stored.getPriority() == null
+                || !priorityId.equals(stored.getPriority().getId()))) {
+            stored.setPriority(session.getReference(Priority.class, priorityId));
+        }
+        var ids = task.getCategories().stream().map(Category::getId).toList();
+        var storedIds = stored.getCategories().stream().map(Category::getId).toList();
+        stored.getCategories().removeIf(category -> !ids.contains(category.getId()));
+        ids.stream()
+                .filter(id -> !storedIds.contains(id))
+                .forEach(id -> stored.getCategories().add(
+                        session.getReference(Category.class, id)));
+        if (task.getCategoryMask() != stored.getCategoryMask()) {
+            stored.setCategoryMask(task.getCategoryMask());
+        }
+    }
+
     /**
      * Update task status from false to true.
      * @param id ID.
@@ -80,41 +293,180 @@ public class TaskStore {
         } catch (Exception exception) {
             LOG.error(Message.STATUS_NOT_UPDATED, exception);
         }
+        cache.invalidate(id);
         return result;
     }
 
     /**
-     * List all persisted tasks.
-     * @return list of tasks.
+     * Set status of tasks with specified ids owned by user to completed.
+     * One statement per IDS_CHUNK ids, all chunks in one transaction.
+     * Tasks of other users are left as they are.
+     * @param ids ids of tasks.
+     * @param userId owner ID.
+     * @return number of updated tasks.
      */
-    public List<Task> findAll() {
-        List<Task> result = Collections.emptyList();
+    public int updateStatus(Collection<Integer> ids, int userId) {
+        var result = 0;
         try {
-            result = crudRepository.query(
-                    String.format(Entry.TWO_ENTRIES,
-                            TaskQuery.SELECT_DISTINCT,
-                            TaskQuery.ORDER_BY_ID_ASC),
-                    Task.class);
+            result = crudRepository.tx(session -> executeByChunks(session, ids,
+                    () -> session.createQuery(String.format(Entry.THREE_ENTRIES,
+                                    TaskQuery.UPDATE_STATUS_ALL,
+                                    TaskQuery.WHERE_ID_IN,
+                                    TaskQuery.AND_USER))
+                            .setParameter(Key.F_USER_ID, userId)));
         } catch (Exception exception) {
-            LOG.error(Message.TASKS_NOT_FOUND, exception);
+            LOG.error(Message.TASKS_NOT_UPDATED, exception);
         }
+        cache.invalidateAll(ids);
         return result;
     }
 
     /**
-     * List all completed tasks.
-     * @return list of tasks.
+     * Keyset page of all task rows.
+     * @param lastId ID of the last task on previous page.
+     * @param limit page size.
+     * @return slice of task rows.
+     */
+    public Slice<TaskRow> findAll(int lastId, int limit) {
+        return findSlice(TaskQuery.WHERE_ID_AFTER, Map.of(Key.F_LAST_ID, lastId), limit);
+    }
+
+    /**
+     * Keyset page of task rows with specified status.
+     * @param done status.
+     * @param lastId ID of the last task on previous page.
+     * @param limit page size.
+     * @return slice of task rows.
+     */
+    public Slice<TaskRow> findAllCompleted(boolean done, int lastId, int limit) {
+        return findSlice(
+                String.format(Entry.TWO_ENTRIES,
+                        TaskQuery.WHERE_DONE,
+                        TaskQuery.AND_ID_AFTER),
+                Map.of(Key.F_DONE, done, Key.F_LAST_ID, lastId), limit);
+    }
+
+    /**
+     * Keyset page of new task rows. New task is a task added today.
+     * @param lastId ID of the last task on previous page.
+     * @param limit page size.
+     * @return slice of task rows.
+     */
+    public Slice<TaskRow> findAllNew(int lastId, int limit) {
+        return findSlice(
+                String.format(Entry.TWO_ENTRIES,
+                        TaskQuery.WHERE_CREATED,
+                        TaskQuery.AND_ID_AFTER),
+                Map.of(Key.F_CREATED, newSince(),
+                        Key.F_LAST_ID, lastId), limit);
+    }
+
+    /**
+     * Start of new tasks range. Truncated to minutes, so that query cache
+     * serves repeated requests within a minute.
+     * @return creation time of the oldest new task.
+     */
+    private static LocalDateTime newSince() {
+        return LocalDateTime.now().minusDays(DAYS_RANGE).truncatedTo(ChronoUnit.MINUTES);
+    }
+
+    /**
+     * Keyset page of task rows owned by user.
+     * Served by tasks(user_id, id) index.
+     * @param userId owner ID.
+     * @param lastId ID of the last task on previous page.
+     * @param limit page size.
+     * @return slice of task rows.
+     */
+    public Slice<TaskRow> findAllByUser(int userId, int lastId, int limit) {
+        return findSlice(
+                String.format(Entry.TWO_ENTRIES,
+                        TaskQuery.WHERE_USER,
+                        TaskQuery.AND_ID_AFTER),
+                Map.of(Key.F_USER_ID, userId, Key.F_LAST_ID, lastId), limit);
+    }
+
+    /**
+     * Keyset page of task rows owned by user with specified status.
+     * Served by tasks(user_id, done, id) index.
+     * @param userId owner ID.
+     * @param done status.
+     * @param lastId ID of the last task on previous page.
+     * @param limit page size.
+     * @return slice of task rows.
+     */
+    public Slice<TaskRow> findCompletedByUser(int userId, boolean done, int lastId, int limit) {
+        return findSlice(
+                String.format(Entry.THREE_ENTRIES,
+                        TaskQuery.WHERE_USER,
+                        TaskQuery.AND_DONE,
+                        TaskQuery.AND_ID_AFTER),
+                Map.of(Key.F_USER_ID, userId, Key.F_DONE, done, Key.F_LAST_ID, lastId), limit);
+    }
+
+    /**
+     * Keyset page of new task rows owned by user. New task is a task added today.
+     * Served by tasks(user_id, created) index.
+     * @param userId owner ID.
+     * @param lastId ID of the last task on previous page.
+     * @param limit page size.
+     * @return slice of task rows.
+     */
+    public Slice<TaskRow> findNewByUser(int userId, int lastId, int limit) {
+        return findSlice(
+                String.format(Entry.THREE_ENTRIES,
+                        TaskQuery.WHERE_USER,
+                        TaskQuery.AND_CREATED,
+                        TaskQuery.AND_ID_AFTER),
+                Map.of(Key.F_USER_ID, userId, Key.F_CREATED, newSince(),
+                        Key.F_LAST_ID, lastId), limit);
+    }
+
+    /**
+     * Seek one page of task rows past the cursor, then load category names
+     * of that page. One extra row is requested to know whether the next page exists.
+     * Rows are projected, so no entity gets into persistence context.
+     * Both queries go through query cache, invalidated by any write to their tables.
+     * @param filter WHERE clause containing :fLastId.
+     * @param args query parameters.
+     * @param limit page size.
+     * @return slice of task rows.
      */
-    public List<Task> findAllCompleted(boolean done) {
-        List<Task> result = Collections.emptyList();
+    private Slice<TaskRow> findSlice(String filter, Map<String, Object> args, int limit) {
+        Slice<TaskRow> result = Slice.empty();
         try {
-            result = crudRepository.query(
-                    String.format(Entry.THREE_ENTRIES,
-                            TaskQuery.SELECT_DISTINCT,
-                            TaskQuery.WHERE_DONE,
-                            TaskQuery.ORDER_BY_ID_ASC),
-                    Task.class, Map.of(Key.F_DONE, done)
-            );
+            result = crudRepository.readOnly(session -> {
+                var decodable = isMaskDecodable(session);
+                var rowQuery = session.createQuery(
+                        String.format(Entry.THREE_ENTRIES,
+                                TaskQuery.SELECT_ROW,
+                                filter,
+                                TaskQuery.ORDER_BY_ID_ASC),
+                        TaskRow.class);
+                for (Map.Entry<String, Object> arg : args.entrySet()) {
+                    rowQuery.setParameter(arg.getKey(), arg.getValue());
+                }
+                var rows = rowQuery.setMaxResults(limit + 1)
+                        .setCacheable(true)
+                        .setCacheRegion(TaskQuery.LISTS_REGION)
+                        .list();
+                if (rows.isEmpty()) {
+                    return Slice.<TaskRow>empty();
+                }
+                var hasNext = rows.size() > limit;
+                var pageRows = hasNext ? rows.subList(0, limit) : rows;
+                if (decodable) {
+                    return new Slice<>(List.copyOf(pageRows),
+                            pageRows.get(pageRows.size() - 1).id(), hasNext);
+                }
+                var ids = pageRows.stream().map(TaskRow::id).toList();
+                var names = session.createQuery(TaskQuery.SELECT_CATEGORY_NAMES, Object[].class)
+                        .setParameter(Key.F_IDS, ids)
+                        .setCacheable(true)
+                        .setCacheRegion(TaskQuery.LISTS_REGION)
+                        .list();
+                return toSlice(pageRows, names, hasNext, null);
+            });
         } catch (Exception exception) {
             LOG.error(Message.TASKS_NOT_FOUND, exception);
         }
@@ -122,20 +474,56 @@ public class TaskStore {
     }
 
     /**
-     * List all new tasks. New task is a task added today.
-     * @return list of tasks.
+     * Keyset page of task rows matching filter, in order of the filter.
+     * Query text is the same for every filter of one shape, so its plan
+     * is taken from query plan cache.
+     * @param filter filter.
+     * @param lastKey sort key of the last row on previous page, null for the first page.
+     * @param lastId ID of the last row on previous page.
+     * @param limit page size.
+     * @return slice of task rows with sort key of the last row.
      */
-    public List<Task> findAllNew() {
-        List<Task> result = Collections.emptyList();
+    public Slice<TaskRow> findByFilter(TaskFilter filter, String lastKey, int lastId, int limit) {
+        Slice<TaskRow> result = Slice.empty();
+        var key = filter.sort().parseKey(lastKey);
+        var shape = TaskFilterQuery.shapeOf(filter, key, lastId);
         try {
-            result = crudRepository.query(
-                    String.format(Entry.THREE_ENTRIES,
-                            TaskQuery.SELECT_DISTINCT,
-                            TaskQuery.WHERE_CREATED,
-                            TaskQuery.ORDER_BY_ID_ASC),
-                    Task.class, Map.of(Key.F_CREATED,
-                            LocalDateTime.now().minusDays(DAYS_RANGE))
-            );
+            result = crudRepository.readOnly(session -> {
+                var decodable = isMaskDecodable(session);
+                var rowQuery = session.createQuery(TaskFilterQuery.hql(shape), Object[].class);
+                for (var arg : TaskFilterQuery.args(filter, shape, key, lastId).entrySet()) {
+                    if (arg.getValue() instanceof Collection<?> values) {
+                        rowQuery.setParameterList(arg.getKey(), values);
+                    } else {
+                        rowQuery.setParameter(arg.getKey(), arg.getValue());
+                    }
+                }
+                var tuples = rowQuery.setMaxResults(limit + 1).list();
+                if (tuples.isEmpty()) {
+                    return Slice.<TaskRow>empty();
+                }
+                var hasNext = tuples.size() > limit;
+                var pageTuples = hasNext ? tuples.subList(0, limit) : tuples;
+                var pageRows = pageTuples.stream()
+                        .map(tuple -> new TaskRow((Integer) tuple[0], (String) tuple[1],
+                                (LocalDateTime) tuple[2], (Boolean) tuple[3],
+                                (String) tuple[4], (String) tuple[5], (Long) tuple[7]))
+                        .toList();
+                var last = pageTuples.get(pageTuples.size() - 1);
+                var sortKey = switch (filter.sort()) {
+                    case ID -> null;
+                    case CREATED -> String.valueOf(last[2]);
+                    case PRIORITY -> String.valueOf(last[6]);
+                };
+                if (decodable) {
+                    return new Slice<>(pageRows, pageRows.get(pageRows.size() - 1).id(),
+                            hasNext, sortKey);
+                }
+                var names = session.createQuery(TaskQuery.SELECT_CATEGORY_NAMES, Object[].class)
+                        .setParameter(Key.F_IDS, pageRows.stream().map(TaskRow::id).toList())
+                        .list();
+                return toSlice(pageRows, names, hasNext, sortKey);
+            });
         } catch (Exception exception) {
             LOG.error(Message.TASKS_NOT_FOUND, exception);
         }
@@ -143,25 +531,467 @@ public class TaskStore {
     }
 
     /**
-     * Get task specified by ID.
+     * Whether category names of rows can be decoded from category mask.
+     * Category table for decoding is registered on first use; categories
+     * come from second-level and query cache then.
+     * @param session session.
+     * @return true unless there are more than 64 categories.
+     */
+    private static boolean isMaskDecodable(Session session) {
+        if (!CategoryMask.isRegistered()) {
+            CategoryMask.register(session.createQuery(CategoryQuery.SELECT_ALL, Category.class)
+                    .setCacheable(true)
+                    .list());
+        }
+        return CategoryMask.isDecodable();
+    }
+
+    /**
+     * Attach category names to rows of the page.
+     * @param pageRows rows of the page in page order.
+     * @param names (task ID, category name) pairs of the page.
+     * @param hasNext whether next page exists.
+     * @param lastKey sort key of the last row, null if rows are ordered by ID.
+     * @return slice of task rows.
+     */
+    private static Slice<TaskRow> toSlice(List<TaskRow> pageRows, List<Object[]> names,
+                                          boolean hasNext, String lastKey) {
+        var byId = new HashMap<Integer, List<String>>();
+        names.forEach(pair -> byId
+                .computeIfAbsent((Integer) pair[0], id -> new ArrayList<>())
+                .add((String) pair[1]));
+        var items = pageRows.stream()
+                .map(row -> row.withCategoryNames(byId.getOrDefault(row.id(), List.of())))
+                .toList();
+        return new Slice<>(items, pageRows.get(pageRows.size() - 1).id(), hasNext, lastKey);
+    }
+
+    /**
+     * Keyset page of archived task rows.
+     * @param lastId ID of the last task on previous page.
+     * @param limit page size.
+     * @return slice of archived task rows.
+     */
+    public Slice<TaskRow> findArchived(int lastId, int limit) {
+        return findArchivedSlice(TaskQuery.NO_FILTER, Map.of(Key.F_LAST_ID, lastId), limit);
+    }
+
+    /**
+     * Keyset page of archived task rows owned by user.
+     * Served by tasks_archive(user_id, id) index.
+     * @param userId owner ID.
+     * @param lastId ID of the last task on previous page.
+     * @param limit page size.
+     * @return slice of archived task rows.
+     */
+    public Slice<TaskRow> findArchivedByUser(int userId, int lastId, int limit) {
+        return findArchivedSlice(TaskQuery.AND_ARCHIVED_USER,
+                Map.of(Key.F_USER_ID, userId, Key.F_LAST_ID, lastId), limit);
+    }
+
+    /**
+     * Seek one page of archived task rows past the cursor, then load category
+     * names of that page. Archive is read on demand only, so nothing is cached.
+     * @param filter condition added to archive rows query.
+     * @param args query parameters.
+     * @param limit page size.
+     * @return slice of archived task rows.
+     */
+    @SuppressWarnings("unchecked")
+    private Slice<TaskRow> findArchivedSlice(String filter, Map<String, Object> args, int limit) {
+        Slice<TaskRow> result = Slice.empty();
+        try {
+            result = crudRepository.readOnly(session -> {
+                var rowQuery = session.createNativeQuery(
+                        String.format(Entry.THREE_ENTRIES,
+                                TaskQuery.SELECT_ARCHIVED_ROW,
+                                filter,
+                                TaskQuery.ORDER_BY_ARCHIVED_ID_ASC));
+                for (Map.Entry<String, Object> arg : args.entrySet()) {
+                    rowQuery.setParameter(arg.getKey(), arg.getValue());
+                }
+                List<Object[]> rows = rowQuery.setMaxResults(limit + 1).getResultList();
+                if (rows.isEmpty()) {
+                    return Slice.<TaskRow>empty();
+                }
+                var hasNext = rows.size() > limit;
+                var pageRows = toRows(hasNext ? rows.subList(0, limit) : rows, false);
+                List<Object[]> names = session
+                        .createNativeQuery(TaskQuery.SELECT_ARCHIVED_CATEGORY_NAMES)
+                        .setParameterList(Key.F_IDS, pageRows.stream().map(TaskRow::id).toList())
+                        .getResultList();
+                return toSlice(pageRows, names, hasNext, null);
+            });
+        } catch (Exception exception) {
+            LOG.error(Message.ARCHIVED_TASKS_NOT_FOUND, exception);
+        }
+        return result;
+    }
+
+    /**
+     * Page of tasks with description matching search query, the most relevant first.
+     * On PostgreSQL query is a web search expression, e.g. {@code milk -bread "dog food"},
+     * matched against GIN indexed tsvector of description, rows are ranked by ts_rank.
+     * Elsewhere, e.g. on H2 in tests, every word of query has to occur in description
+     * and the newest tasks come first; the table is scanned then.
+     * @param query search query.
+     * @param page page number, starting from 0.
+     * @param limit page size.
+     * @return slice of task rows, empty for blank query.
+     */
+    @SuppressWarnings("unchecked")
+    public Slice<TaskRow> search(String query, int page, int limit) {
+        Slice<TaskRow> result = Slice.empty();
+        if (query == null || query.isBlank()) {
+            return result;
+        }
+        try {
+            var postgreSql = crudRepository.isPostgreSql();
+            result = crudRepository.readOnly(session -> {
+                Query<Object[]> rowQuery;
+                if (postgreSql) {
+                    rowQuery = session.createNativeQuery(
+                                    TaskQuery.SELECT_SEARCH_ROW + TaskQuery.SEARCH_POSTGRESQL)
+                            .setParameter(Key.F_QUERY, query);
+                } else {
+                    var terms = query.strip().split("\\s+");
+                    var conditions = new ArrayList<String>();
+                    for (int i = 0; i < terms.length; i++) {
+                        conditions.add(String.format(TaskQuery.SEARCH_TERM, i));
+                    }
+                    rowQuery = session.createNativeQuery(String.format(Entry.THREE_ENTRIES,
+                            TaskQuery.SELECT_SEARCH_ROW,
+                            "WHERE " + String.join(" AND ", conditions),
+                            TaskQuery.ORDER_BY_SEARCH_ID_DESC));
+                    for (int i = 0; i < terms.length; i++) {
+                        rowQuery.setParameter(Key.F_TERM + i, TaskFilterQuery.contains(terms[i]));
+                    }
+                }
+                var rows = rowQuery.setFirstResult(page * limit).setMaxResults(limit + 1).list();
+                if (rows.isEmpty()) {
+                    return Slice.<TaskRow>empty();
+                }
+                var hasNext = rows.size() > limit;
+                var decodable = isMaskDecodable(session);
+                var pageRows = toRows(hasNext ? rows.subList(0, limit) : rows, decodable);
+                if (decodable) {
+                    return new Slice<>(pageRows, pageRows.get(pageRows.size() - 1).id(), hasNext);
+                }
+                var names = session.createQuery(TaskQuery.SELECT_CATEGORY_NAMES, Object[].class)
+                        .setParameter(Key.F_IDS, pageRows.stream().map(TaskRow::id).toList())
+                        .list();
+                return toSlice(pageRows, names, hasNext, null);
+            });
+        } catch (Exception exception) {
+            LOG.error(Message.TASKS_NOT_SEARCHED, exception);
+        }
+        return result;
+    }
+
+    /**
+     * Task rows of native query result.
+     * @param rows (id, description, created, done, priority name, owner login,
+     *             category mask) tuples.
+     * @param decodable whether category names are decoded from category mask.
+     * @return task rows, without category names unless decodable.
+     */
+    private static List<TaskRow> toRows(List<Object[]> rows, boolean decodable) {
+        return rows.stream()
+                .map(row -> {
+                    var created = ((Timestamp) row[2]).toLocalDateTime();
+                    return decodable
+                            ? new TaskRow((Integer) row[0], (String) row[1], created,
+                                    (Boolean) row[3], (String) row[4], (String) row[5],
+                                    ((Number) row[6]).longValue())
+                            : new TaskRow((Integer) row[0], (String) row[1], created,
+                                    (Boolean) row[3], (String) row[4], (String) row[5]);
+                })
+                .toList();
+    }
+
+    /**
+     * Move one chunk of completed tasks created before the date, with their
+     * categories, into tasks_archive and tasks_categories_archive.
+     * Tasks are taken in ID order past the watermark and locked, so that
+     * an edit cannot slip in between copy and delete. Copy and delete
+     * run in one short transaction, so locks are held for one chunk only.
+     * @param before creation time archived tasks precede.
+     * @param lastId watermark, ID of the last task of previous chunk.
+     * @param limit chunk size.
+     * @return ids of archived tasks ordered by ID, empty if nothing archived.
+     */
+    public List<Integer> archive(LocalDateTime before, int lastId, int limit) {
+        List<Integer> result = Collections.emptyList();
+        try {
+            result = crudRepository.tx(session -> {
+                var ids = session.createQuery(TaskQuery.SELECT_ARCHIVABLE_ID, Integer.class)
+                        .setParameter(Key.F_CREATED, before)
+                        .setParameter(Key.F_LAST_ID, lastId)
+                        .setMaxResults(limit)
+                        .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                        .list();
+                if (ids.isEmpty()) {
+                    return ids;
+                }
+                session.createNativeQuery(TaskQuery.INSERT_ARCHIVE)
+                        .addSynchronizedQuerySpace(TaskQuery.ARCHIVE_TABLE)
+                        .setParameterList(Key.F_IDS, ids)
+                        .executeUpdate();
+                session.createNativeQuery(TaskQuery.INSERT_CATEGORIES_ARCHIVE)
+                        .addSynchronizedQuerySpace(TaskQuery.CATEGORIES_ARCHIVE_TABLE)
+                        .setParameterList(Key.F_IDS, ids)
+                        .executeUpdate();
+                session.createQuery(String.format(Entry.TWO_ENTRIES,
+                                TaskQuery.DELETE_TASK,
+                                TaskQuery.WHERE_ID_IN))
+                        .setParameterList(Key.F_IDS, ids)
+                        .executeUpdate();
+                return ids;
+            });
+        } catch (Exception exception) {
+            LOG.error(Message.TASKS_NOT_ARCHIVED, exception);
+        }
+        cache.invalidateAll(result);
+        suggestions.removeAll(result);
+        return result;
+    }
+
+    /**
+     * Stream all tasks ordered by ID without materializing them.
+     * Tuples of one task arrive one after another, one per category,
+     * and are folded into one TaskRow.
+     * Failure is not swallowed: rows already passed to consumer may be on
+     * their way to client, which must not take the partial export for a whole one.
+     * @param consumer task row consumer.
+     * @return number of exported tasks.
+     * @throws IllegalStateException if DB or consumer failed in the middle of export.
+     */
+    public long export(Consumer<TaskRow> consumer) {
+        try {
+            var folder = new RowFolder(consumer);
+            crudRepository.scroll(TaskQuery.SELECT_EXPORT, Map.of(), EXPORT_FETCH_SIZE, folder);
+            return folder.finish();
+        } catch (Exception exception) {
+            LOG.error(Message.TASKS_NOT_EXPORTED, exception);
+            throw new IllegalStateException(Message.TASKS_NOT_EXPORTED, exception);
+        }
+    }
+
+    /**
+     * Folds consecutive (task, category) tuples of one task into TaskRow.
+     */
+    private static class RowFolder implements Consumer<Object[]> {
+        private final Consumer<TaskRow> consumer;
+        private final List<String> names = new ArrayList<>();
+        private TaskRow current;
+        private long count;
+
+        RowFolder(Consumer<TaskRow> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void accept(Object[] tuple) {
+            var id = (Integer) tuple[0];
+            if (current != null && current.id() != id) {
+                emit();
+            }
+            if (current == null) {
+                current = new TaskRow(id, (String) tuple[1], (LocalDateTime) tuple[2],
+                        (Boolean) tuple[3], (String) tuple[4], (String) tuple[5]);
+            }
+            if (tuple[6] != null) {
+                names.add((String) tuple[6]);
+            }
+        }
+
+        private void emit() {
+            consumer.accept(current.withCategoryNames(names));
+            names.clear();
+            current = null;
+            count++;
+        }
+
+        long finish() {
+            if (current != null) {
+                emit();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Approximate number of tasks taken from planner statistics,
+     * so the table is not scanned. On PostgreSQL partitioned tasks table
+     * has no statistics of its own, so those of its partitions are summed.
+     * @return approximate number of tasks or 0 if statistics unavailable.
+     */
+    public long countApproximately() {
+        var result = 0L;
+        try {
+            var query = crudRepository.isPostgreSql()
+                    ? TaskQuery.APPROXIMATE_COUNT_POSTGRESQL
+                    : TaskQuery.APPROXIMATE_COUNT_H2;
+            Number count = crudRepository.readOnly(session -> (Number) session
+                    .createNativeQuery(query)
+                    .uniqueResult());
+            result = count == null ? 0L : Math.max(0L, count.longValue());
+        } catch (Exception exception) {
+            LOG.error(Message.TASKS_NOT_COUNTED, exception);
+        }
+        return result;
+    }
+
+    /**
+     * Number of tasks matching filter, sort order aside. Unfiltered number
+     * of all tasks is estimated from table statistics, any other one is
+     * counted exactly over indexes of the filter conditions.
+     * @param filter filter.
+     * @return number of tasks or 0 if DB failed.
+     */
+    public long count(TaskFilter filter) {
+        var shape = TaskFilterQuery.countShapeOf(filter);
+        var args = TaskFilterQuery.args(filter, shape, null, 0);
+        if (args.isEmpty()) {
+            return countApproximately();
+        }
+        var result = 0L;
+        try {
+            result = crudRepository.readOnly(session -> {
+                var query = session.createQuery(TaskFilterQuery.countHql(shape), Long.class);
+                args.forEach(query::setParameter);
+                return query.uniqueResult();
+            });
+        } catch (Exception exception) {
+            LOG.error(Message.TASKS_NOT_COUNTED, exception);
+        }
+        return result;
+    }
+
+    /**
+     * Number of new tasks, the same as listed by {@link #findAllNew}.
+     * @param userId owner ID or null for tasks of all users.
+     * @return number of tasks or 0 if DB failed.
+     */
+    public long countNew(Integer userId) {
+        return count(TaskFilter.builder().createdFrom(newSince()).userId(userId).build());
+    }
+
+    /**
+     * Number of archived tasks.
+     * @param userId owner ID or null for tasks of all users.
+     * @return number of tasks or 0 if DB failed.
+     */
+    public long countArchived(Integer userId) {
+        var result = 0L;
+        try {
+            Number count = crudRepository.readOnly(session -> {
+                var query = session.createNativeQuery(userId == null
+                        ? TaskQuery.COUNT_ARCHIVED
+                        : String.format(Entry.TWO_ENTRIES,
+                                TaskQuery.COUNT_ARCHIVED, TaskQuery.AND_ARCHIVED_USER));
+                if (userId != null) {
+                    query.setParameter(Key.F_USER_ID, userId);
+                }
+                return (Number) query.uniqueResult();
+            });
+            result = count.longValue();
+        } catch (Exception exception) {
+            LOG.error(Message.TASKS_NOT_COUNTED, exception);
+        }
+        return result;
+    }
+
+    /**
+     * Get task specified by ID. Returned task is a copy of snapshot
+     * held by task cache, so it may be changed freely.
      * @param id ID.
      * @return Optional<Task>.
      */
     public Optional<Task> getById(int id) {
-        Optional<Task> result = Optional.empty();
+        return cache.get(id, this::load);
+    }
+
+    /**
+     * Load task on task cache miss. Task, its owner, priority and categories
+     * are taken from second-level cache when present there; otherwise
+     * they are loaded by one query of detail graph and put into the cache.
+     * @param id ID.
+     * @return task or null if not found or DB failed.
+     */
+    private Task load(int id) {
+        Task result = null;
         try {
-            result = crudRepository.optional(
-                    String.format(Entry.TWO_ENTRIES,
-                            TaskQuery.SELECT_DISTINCT,
-                            TaskQuery.WHERE_ID),
-                    Task.class, Map.of(Key.F_ID, id)
-            );
+            result = crudRepository.readOnly(session -> {
+                var task = session.find(Task.class, id, Map.of(
+                        GraphSemantic.FETCH.getJpaHintName(),
+                        session.getEntityGraph(TaskQuery.DETAIL_GRAPH)));
+                if (task != null) {
+                    Hibernate.initialize(task.getUser());
+                    Hibernate.initialize(task.getPriority());
+                    Hibernate.initialize(task.getCategories());
+                }
+                return task;
+            });
         } catch (Exception exception) {
             LOG.error(Message.TASKS_NOT_FOUND, exception);
         }
         return result;
     }
 
+    /**
+     * Task cache metrics.
+     * @return hits, misses, evictions, size and hit ratio.
+     */
+    public Map<String, Object> cacheMetrics() {
+        return cache.metrics();
+    }
+
+    /**
+     * Fill typeahead index from one streaming scan of task descriptions,
+     * the newest first, until its memory bound is reached.
+     * @return number of indexed tasks.
+     */
+    public int loadSuggestions() {
+        suggestions.clear();
+        try {
+            crudRepository.scroll(TaskQuery.SELECT_DESCRIPTIONS, Map.of(), EXPORT_FETCH_SIZE,
+                    tuple -> suggestions.put((Integer) tuple[0], (String) tuple[1]));
+        } catch (Exception exception) {
+            LOG.error(Message.SUGGESTIONS_NOT_LOADED, exception);
+        }
+        return suggestions.size();
+    }
+
+    /**
+     * Evict every task from task cache and rebuild typeahead index from DB,
+     * after tasks left tasks table bypassing this store, e.g. with detached partition.
+     * @return number of indexed tasks.
+     */
+    public int evictAll() {
+        cache.invalidateAll();
+        return loadSuggestions();
+    }
+
+    /**
+     * The newest tasks having a word starting with every word of query,
+     * taken from typeahead index without hitting DB.
+     * @param query words typed by user.
+     * @param limit max number of suggestions.
+     * @return suggestions, the newest first.
+     */
+    public List<TaskSuggestion> suggest(String query, int limit) {
+        return suggestions.suggest(query, limit);
+    }
+
+    /**
+     * Metrics of typeahead index.
+     * @return indexed tasks, words, estimated memory use and lookup time.
+     */
+    public Map<String, Object> suggestMetrics() {
+        return suggestions.metrics();
+    }
+
     /**
      * Delete task by specified ID.
      * @param id ID.
@@ -176,9 +1006,142 @@ public class TaskStore {
                             TaskQuery.WHERE_ID),
                     Map.of(Key.F_ID, id)
             );
+            suggestions.remove(id);
         } catch (Exception exception) {
             LOG.error(Message.TASK_NOT_DELETED, exception);
         }
+        cache.invalidate(id);
+        return result;
+    }
+
+    /**
+     * Delete tasks with specified ids owned by user together with their
+     * tasks_categories rows. Owned ids are selected first, so that only they
+     * leave the suggestion index, then bulk delete of Task removes join rows
+     * of the whole chunk itself: three statements per IDS_CHUNK ids, all chunks
+     * in one transaction. Tasks of other users are left as they are.
+     * @param ids ids of tasks.
+     * @param userId owner ID.
+     * @return number of deleted tasks.
+     */
+    public int delete(Collection<Integer> ids, int userId) {
+        var result = 0;
+        var owned = new ArrayList<Integer>();
+        try {
+            result = crudRepository.tx(session -> {
+                var distinct = List.copyOf(new LinkedHashSet<>(ids));
+                for (int from = 0; from < distinct.size(); from += IDS_CHUNK) {
+                    owned.addAll(session.createQuery(String.format(Entry.THREE_ENTRIES,
+                                    TaskQuery.SELECT_ID,
+                                    TaskQuery.WHERE_ID_IN,
+                                    TaskQuery.AND_USER), Integer.class)
+                            .setParameterList(Key.F_IDS,
+                                    distinct.subList(from, Math.min(from + IDS_CHUNK,
+                                            distinct.size())))
+                            .setParameter(Key.F_USER_ID, userId)
+                            .list());
+                }
+                return executeByChunks(session, owned,
+                        () -> session.createQuery(String.format(Entry.THREE_ENTRIES,
+                                        TaskQuery.DELETE_TASK,
+                                        TaskQuery.WHERE_ID_IN,
+                                        TaskQuery.AND_USER))
+                                .setParameter(Key.F_USER_ID, userId));
+            });
+            suggestions.removeAll(owned);
+        } catch (Exception exception) {
+            LOG.error(Message.TASKS_NOT_DELETED, exception);
+        }
+        cache.invalidateAll(ids);
+        return result;
+    }
+
+    /**
+     * Delete one batch of tasks owned by user together with their
+     * tasks_categories rows, lowest ids first, in one short transaction.
+     * @param userId owner ID.
+     * @param limit batch size.
+     * @return number of deleted tasks, 0 if none left or DB failed.
+     */
+    public int deleteByUser(int userId, int limit) {
+        List<Integer> result = Collections.emptyList();
+        try {
+            result = crudRepository.tx(session -> {
+                var ids = session.createQuery(String.format(Entry.THREE_ENTRIES,
+                                TaskQuery.SELECT_ID,
+                                TaskQuery.WHERE_USER,
+                                TaskQuery.ORDER_BY_ID_ASC), Integer.class)
+                        .setParameter(Key.F_USER_ID, userId)
+                        .setMaxResults(limit)
+                        .list();
+                if (!ids.isEmpty()) {
+                    executeByChunks(session, ids,
+                            () -> session.createQuery(String.format(Entry.TWO_ENTRIES,
+                                    TaskQuery.DELETE_TASK,
+                                    TaskQuery.WHERE_ID_IN)));
+                }
+                return ids;
+            });
+        } catch (Exception exception) {
+            LOG.error(Message.TASKS_NOT_DELETED, exception);
+        }
+        cache.invalidateAll(result);
+        suggestions.removeAll(result);
+        return result.size();
+    }
+
+    /**
+     * Delete one batch of archived tasks owned by user together with
+     * their tasks_categories_archive rows, in one short transaction.
+     * @param userId owner ID.
+     * @param limit batch size.
+     * @return number of deleted archived tasks, 0 if none left or DB failed.
+     */
+    @SuppressWarnings("unchecked")
+    public int deleteArchivedByUser(int userId, int limit) {
+        var result = 0;
+        try {
+            result = crudRepository.tx(session -> {
+                List<Integer> ids = session
+                        .createNativeQuery(TaskQuery.SELECT_ARCHIVED_ID_BY_USER)
+                        .setParameter(Key.F_USER_ID, userId)
+                        .setMaxResults(limit)
+                        .getResultList();
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                session.createNativeQuery(TaskQuery.DELETE_CATEGORIES_ARCHIVE)
+                        .addSynchronizedQuerySpace(TaskQuery.CATEGORIES_ARCHIVE_TABLE)
+                        .setParameterList(Key.F_IDS, ids)
+                        .executeUpdate();
+                return session.createNativeQuery(TaskQuery.DELETE_ARCHIVE)
+                        .addSynchronizedQuerySpace(TaskQuery.ARCHIVE_TABLE)
+                        .setParameterList(Key.F_IDS, ids)
+                        .executeUpdate();
+            });
+        } catch (Exception exception) {
+            LOG.error(Message.TASKS_NOT_DELETED, exception);
+        }
+        return result;
+    }
+
+    /**
+     * Execute statement with :fIds parameter once per IDS_CHUNK ids.
+     * @param session session.
+     * @param ids ids.
+     * @param statement creates statement for the chunk.
+     * @return number of affected rows.
+     */
+    private int executeByChunks(Session session, Collection<Integer> ids,
+                                Supplier<Query<?>> statement) {
+        var distinct = List.copyOf(new LinkedHashSet<>(ids));
+        var result = 0;
+        for (int from = 0; from < distinct.size(); from += IDS_CHUNK) {
+            var chunk = distinct.subList(from, Math.min(from + IDS_CHUNK, distinct.size()));
+            result += statement.get()
+                    .setParameterList(Key.F_IDS, chunk)
+                    .executeUpdate();
+        }
         return result;
     }
-}
\ No newline at end of file
+}
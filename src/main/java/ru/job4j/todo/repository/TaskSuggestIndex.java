@@ -0,0 +1,256 @@
+package ru.job4j.todo.repository;
+
+import net.jcip.annotations.ThreadSafe;
+import ru.job4j.todo.model.TaskSuggestion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory word prefix index of task descriptions for typeahead.
+ * Words of descriptions are kept in a sorted map, so all words starting
+ * with a prefix are one range of it; every word points to ids of its
+ * tasks in descending order. Suggestions are the newest tasks having
+ * a word starting with every word of query. Ids of tasks are also kept
+ * for every prefix of up to SHORT_PREFIX characters, as such a prefix
+ * starts nearly every word and its range would be the whole vocabulary.
+ * Memory is bounded by estimated size in bytes: when it is exceeded,
+ * tasks with the lowest ids are evicted, so the index holds the newest
+ * tasks that fit. Reads are lock-free, writes are serialized.
+ * @author Lenar Sharipov
+ * @version 1.0
+ */
+@ThreadSafe
+public class TaskSuggestIndex {
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final int TASK_BYTES = 96;
+    private static final int TERM_BYTES = 128;
+    private static final int POSTING_BYTES = 48;
+    private static final int CHAR_BYTES = 2;
+    private static final int MAX_CANDIDATES = 1000;
+    private static final int SHORT_PREFIX = 2;
+
+    private final long maxBytes;
+    private final ConcurrentSkipListMap<Integer, String> descriptions =
+            new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, ConcurrentSkipListSet<Integer>> terms =
+            new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, ConcurrentSkipListSet<Integer>> shortPrefixes =
+            new ConcurrentSkipListMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong lookupNanos = new AtomicLong();
+    private final AtomicLong maxLookupNanos = new AtomicLong();
+
+    public TaskSuggestIndex(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Index task description, replacing previous one of the task.
+     * Task older than every indexed one is not added to a full index.
+     * @param id task ID.
+     * @param description description.
+     * @return true if task is indexed.
+     */
+    public synchronized boolean put(int id, String description) {
+        remove(id);
+        if (description == null) {
+            return false;
+        }
+        if (bytes.get() + weigh(description) > maxBytes
+                && (descriptions.isEmpty() || id < descriptions.firstKey())) {
+            return false;
+        }
+        descriptions.put(id, description);
+        bytes.addAndGet(TASK_BYTES + (long) description.length() * CHAR_BYTES);
+        var words = words(description);
+        words.forEach(word -> add(terms, word, id));
+        shortPrefixes(words).forEach(prefix -> add(shortPrefixes, prefix, id));
+        while (bytes.get() > maxBytes && descriptions.size() > 1) {
+            remove(descriptions.firstKey());
+            evictions.incrementAndGet();
+        }
+        return descriptions.containsKey(id);
+    }
+
+    public synchronized void remove(int id) {
+        var description = descriptions.remove(id);
+        if (description == null) {
+            return;
+        }
+        bytes.addAndGet(-(TASK_BYTES + (long) description.length() * CHAR_BYTES));
+        var words = words(description);
+        words.forEach(word -> remove(terms, word, id));
+        shortPrefixes(words).forEach(prefix -> remove(shortPrefixes, prefix, id));
+    }
+
+    private void add(Map<String, ConcurrentSkipListSet<Integer>> index, String key, int id) {
+        var ids = index.get(key);
+        if (ids == null) {
+            ids = new ConcurrentSkipListSet<>(Comparator.reverseOrder());
+            index.put(key, ids);
+            bytes.addAndGet(TERM_BYTES + (long) key.length() * CHAR_BYTES);
+        }
+        ids.add(id);
+        bytes.addAndGet(POSTING_BYTES);
+    }
+
+    private void remove(Map<String, ConcurrentSkipListSet<Integer>> index, String key, int id) {
+        var ids = index.get(key);
+        if (ids != null && ids.remove(id)) {
+            bytes.addAndGet(-POSTING_BYTES);
+            if (ids.isEmpty()) {
+                index.remove(key);
+                bytes.addAndGet(-(TERM_BYTES + (long) key.length() * CHAR_BYTES));
+            }
+        }
+    }
+
+    public synchronized void removeAll(Collection<Integer> ids) {
+        ids.forEach(this::remove);
+    }
+
+    public synchronized void clear() {
+        descriptions.clear();
+        terms.clear();
+        shortPrefixes.clear();
+        bytes.set(0);
+    }
+
+    public int size() {
+        return descriptions.size();
+    }
+
+    /**
+     * The newest tasks having a word starting with every word of query.
+     * Ids are merged from ids of all words starting with the longest word
+     * of query, newest first, and checked against the other words, so at
+     * most MAX_CANDIDATES tasks are looked at. Short longest word takes
+     * the ids of its prefix instead, so no range of words is scanned.
+     * @param query words typed by user, the last one possibly incomplete.
+     * @param limit max number of suggestions.
+     * @return suggestions, the newest first.
+     */
+    public List<TaskSuggestion> suggest(String query, int limit) {
+        var start = System.nanoTime();
+        var result = new ArrayList<TaskSuggestion>();
+        var prefixes = words(query == null ? "" : query);
+        if (!prefixes.isEmpty() && limit > 0) {
+            var driver = prefixes.stream()
+                    .max(Comparator.comparingInt(String::length)).orElseThrow();
+            var heads = new PriorityQueue<Head>(Comparator.comparingInt(Head::id).reversed());
+            Collection<ConcurrentSkipListSet<Integer>> sources = driver.length() <= SHORT_PREFIX
+                    ? Optional.ofNullable(shortPrefixes.get(driver)).map(List::of).orElse(List.of())
+                    : terms.subMap(driver, driver + Character.MAX_VALUE).values();
+            for (var ids : sources) {
+                Head.next(ids.iterator()).ifPresent(heads::add);
+            }
+            var last = -1;
+            var candidates = 0;
+            while (!heads.isEmpty() && result.size() < limit && candidates < MAX_CANDIDATES) {
+                var head = heads.poll();
+                Head.next(head.rest()).ifPresent(heads::add);
+                if (head.id() == last) {
+                    continue;
+                }
+                last = head.id();
+                candidates++;
+                var description = descriptions.get(head.id());
+                if (description != null
+                        && (prefixes.size() == 1 || matches(words(description), prefixes))) {
+                    result.add(new TaskSuggestion(head.id(), description));
+                }
+            }
+        }
+        var nanos = System.nanoTime() - start;
+        lookups.incrementAndGet();
+        lookupNanos.addAndGet(nanos);
+        maxLookupNanos.accumulateAndGet(nanos, Math::max);
+        return result;
+    }
+
+    /**
+     * Index metrics.
+     * @return indexed tasks and words, estimated and max bytes, evictions,
+     * lookups with their mean and max duration in microseconds.
+     */
+    public Map<String, Object> metrics() {
+        var count = lookups.get();
+        var result = new LinkedHashMap<String, Object>();
+        result.put("tasks", descriptions.size());
+        result.put("words", terms.size());
+        result.put("bytes", bytes.get());
+        result.put("maxBytes", maxBytes);
+        result.put("evictions", evictions.get());
+        result.put("lookups", count);
+        result.put("meanLookupMicros", count == 0 ? 0.0 : lookupNanos.get() / 1000.0 / count);
+        result.put("maxLookupMicros", maxLookupNanos.get() / 1000.0);
+        return result;
+    }
+
+    private static boolean matches(Set<String> words, Set<String> prefixes) {
+        return prefixes.stream()
+                .allMatch(prefix -> words.stream().anyMatch(word -> word.startsWith(prefix)));
+    }
+
+    /**
+     * Distinct lowercase words of text.
+     */
+    private static Set<String> words(String text) {
+        var result = new LinkedHashSet<String>();
+        var matcher = WORD.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            result.add(matcher.group());
+        }
+        return result;
+    }
+
+    /**
+     * Distinct prefixes of up to SHORT_PREFIX characters of words.
+     */
+    private static Set<String> shortPrefixes(Set<String> words) {
+        var result = new LinkedHashSet<String>();
+        for (var word : words) {
+            for (int length = 1; length <= Math.min(SHORT_PREFIX, word.length()); length++) {
+                result.add(word.substring(0, length));
+            }
+        }
+        return result;
+    }
+
+    private static long weigh(String description) {
+        var words = words(description);
+        var keys = new ArrayList<>(words);
+        keys.addAll(shortPrefixes(words));
+        return TASK_BYTES + (long) description.length() * CHAR_BYTES
+                + keys.size() * (long) (TERM_BYTES + POSTING_BYTES)
+                + keys.stream().mapToLong(key -> (long) key.length() * CHAR_BYTES).sum();
+    }
+
+    /**
+     * Current ID of one word's ids and the rest of them.
+     */
+    private record Head(int id, Iterator<Integer> rest) {
+        static Optional<Head> next(Iterator<Integer> ids) {
+            return ids.hasNext()
+                    ? Optional.of(new Head(ids.next(), ids))
+                    : Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ru.job4j.todo.repository;
+
+import net.jcip.annotations.NotThreadSafe;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import java.util.Optional;
+
+/**
+ * Unit of work of one HTTP request. While it is open in current thread,
+ * read-only commands of {@link CrudRepository} share one read-only session
+ * and transaction, hence one JDBC connection, instead of each opening
+ * its own. Session is opened by the first command and closed with the unit
+ * of work, so a request without database work costs nothing.
+ * Write commands keep running in their own transactions; since shared session
+ * is never flushed, entities it loaded earlier do not see those writes.
+ * Shared session holds its connection until closed, so the previous read-only
+ * flag of the connection is restored on it when the unit of work ends.
+ * @author Lenar Sharipov
+ * @version 1.0
+ */
+@NotThreadSafe
+public class UnitOfWork implements AutoCloseable {
+
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private SessionFactory sf;
+    private Session session;
+    private Transaction transaction;
+    private long start;
+    private boolean wasReadOnly;
+
+    private UnitOfWork() {
+    }
+
+    /**
+     * Open unit of work in current thread.
+     * @return unit of work bound to current thread.
+     */
+    public static UnitOfWork begin() {
+        var unit = new UnitOfWork();
+        CURRENT.set(unit);
+        return unit;
+    }
+
+    static Optional<UnitOfWork> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /**
+     * Shared session, opened with its transaction on first use.
+     * Unit of work belongs to session factory of its first command.
+     * @param factory session factory of command.
+     * @return session or empty if unit of work belongs to another factory.
+     */
+    Optional<Session> session(SessionFactory factory) {
+        if (sf != null && sf != factory) {
+            return Optional.empty();
+        }
+        if (session == null) {
+            sf = factory;
+            start = System.nanoTime();
+            session = CrudRepository.openReadOnly(sf);
+            wasReadOnly = CrudRepository.setReadOnly(session, true);
+            transaction = session.beginTransaction();
+            RequestStatistics.connectionAcquired();
+        }
+        return Optional.of(session);
+    }
+
+    /**
+     * Discard shared session after failed command, as its state can not
+     * be trusted anymore. The next command opens a new one.
+     */
+    void fail() {
+        end(false);
+    }
+
+    @Override
+    public void close() {
+        CURRENT.remove();
+        end(true);
+    }
+
+    private void end(boolean commit) {
+        if (session == null) {
+            return;
+        }
+        try {
+            if (commit) {
+                transaction.commit();
+            } else {
+                transaction.rollback();
+            }
+            RequestStatistics.transactionCompleted(System.nanoTime() - start, 0, 0);
+        } finally {
+            try {
+                CrudRepository.setReadOnly(session, wasReadOnly);
+            } finally {
+                session.close();
+                session = null;
+                sf = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package ru.job4j.todo.repository;
+
+import lombok.AllArgsConstructor;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+import ru.job4j.todo.model.User;
+import ru.job4j.todo.model.UserPurge;
+import ru.job4j.todo.util.Key;
+import ru.job4j.todo.util.Message;
+import ru.job4j.todo.util.PurgeQuery;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Persistent state of user purges kept in user_purges table, so that
+ * a purge interrupted by a crash or restart is resumed where it stopped.
+ * @author Lenar Sharipov
+ * @version 1.0
+ */
+@ThreadSafe
+@Repository
+@AllArgsConstructor
+public class UserPurgeStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserPurgeStore.class.getName());
+
+    private final CrudRepository crudRepository;
+
+    /**
+     * Register purge of user unless it is registered already.
+     * @param userId user ID.
+     * @return true if user exists and purge is registered by this call.
+     */
+    public boolean register(int userId) {
+        var result = false;
+        try {
+            result = crudRepository.tx(session -> session
+                    .createNativeQuery(PurgeQuery.INSERT_PURGE)
+                    .addSynchronizedQuerySpace(PurgeQuery.PURGES_TABLE)
+                    .setParameter(Key.F_USER_ID, userId)
+                    .executeUpdate() > 0);
+        } catch (Exception exception) {
+            LOG.error(Message.PURGE_NOT_REGISTERED, exception);
+        }
+        return result;
+    }
+
+    /**
+     * List unfinished purges, the oldest first.
+     * @return list of purges.
+     */
+    @SuppressWarnings("unchecked")
+    public List<UserPurge> findUnfinished() {
+        List<UserPurge> result = Collections.emptyList();
+        try {
+            result = crudRepository.readOnly(session -> ((List<Object[]>) session
+                    .createNativeQuery(PurgeQuery.SELECT_UNFINISHED)
+                    .getResultList())
+                    .stream()
+                    .map(row -> new UserPurge(((Number) row[0]).intValue(), (String) row[1],
+                            ((Number) row[2]).longValue()))
+                    .toList());
+        } catch (Exception exception) {
+            LOG.error(Message.PURGES_NOT_FOUND, exception);
+        }
+        return result;
+    }
+
+    /**
+     * Add number of deleted tasks to progress of purge.
+     * @param userId user ID.
+     * @param count number of tasks deleted by the last batch.
+     */
+    public void addProgress(int userId, int count) {
+        try {
+            crudRepository.run(session -> session
+                    .createNativeQuery(PurgeQuery.ADD_PROGRESS)
+                    .addSynchronizedQuerySpace(PurgeQuery.PURGES_TABLE)
+                    .setParameter(Key.F_COUNT, count)
+                    .setParameter(Key.F_USER_ID, userId)
+                    .executeUpdate());
+        } catch (Exception exception) {
+            LOG.error(Message.PURGE_NOT_UPDATED, exception);
+        }
+    }
+
+    /**
+     * Delete user and mark purge finished in one transaction. User is kept
+     * while any live or archived task of the user remains, e.g. added
+     * after the last batch, so the purge is retried later.
+     * @param userId user ID.
+     * @return true if user is gone and purge finished.
+     */
+    public boolean finish(int userId) {
+        var result = false;
+        try {
+            result = crudRepository.tx(session -> {
+                session.createNativeQuery(PurgeQuery.DELETE_USER)
+                        .addSynchronizedEntityClass(User.class)
+                        .setParameter(Key.F_USER_ID, userId)
+                        .executeUpdate();
+                return session.createNativeQuery(PurgeQuery.FINISH_PURGE)
+                        .addSynchronizedQuerySpace(PurgeQuery.PURGES_TABLE)
+                        .setParameter(Key.F_USER_ID, userId)
+                        .executeUpdate() > 0;
+            });
+        } catch (Exception exception) {
+            LOG.error(Message.PURGE_NOT_FINISHED, exception);
+        }
+        return result;
+    }
+}
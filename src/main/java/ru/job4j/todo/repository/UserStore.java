@@ -66,6 +66,23 @@ public class UserStore {
         return result;
     }
 
+    /**
+     * Get user found by login.
+     * @param login login.
+     * @return Optional<User>.
+     */
+    public Optional<User> findByLogin(String login) {
+        Optional<User> result = Optional.empty();
+        try {
+            result = crudRepository.optional(
+                    UserQuery.FILTER_BY_LOGIN, User.class,
+                    Map.of(Key.F_LOGIN, login));
+        } catch (Exception exception) {
+            LOG.error(Message.USER_NOT_FOUND, exception);
+        }
+        return result;
+    }
+
     /**
      * List all persisted users.
      * @return list of users.
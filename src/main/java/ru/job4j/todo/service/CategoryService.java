@@ -3,7 +3,10 @@ package ru.job4j.todo.service;
 import ru.job4j.todo.model.Category;
 
 import java.util.List;
+import java.util.Map;
 
 public interface CategoryService {
     List<Category> findAll();
+    void refresh();
+    Map<String, Object> cacheMetrics();
 }
@@ -3,7 +3,10 @@ package ru.job4j.todo.service;
 import ru.job4j.todo.model.Priority;
 
 import java.util.List;
+import java.util.Map;
 
 public interface PriorityService {
     List<Priority> findAll();
-}
\ No newline at end of file
+    void refresh();
+    Map<String, Object> cacheMetrics();
+}
@@ -0,0 +1,124 @@
+package ru.job4j.todo.service;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of a small lookup table. Holds an immutable snapshot
+ * of the whole table, replaced on explicit refresh or once TTL expired.
+ * Readers never block on a fresh snapshot; only one thread reloads
+ * an expired one. Empty load result is not cached, so DB failure
+ * is retried on the next call. Listener gets every loaded snapshot, so
+ * state derived from the table follows its reloads.
+ * @param <T> element type. Elements are shared between readers and
+ *            must not be modified.
+ * @author Lenar Sharipov
+ * @version 1.0
+ */
+@ThreadSafe
+public class ReferenceCache<T> {
+
+    private final String name;
+    private final Supplier<List<T>> loader;
+    private final Consumer<List<T>> listener;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final AtomicReference<Snapshot<T>> snapshot = new AtomicReference<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    public ReferenceCache(String name, Supplier<List<T>> loader, Duration ttl) {
+        this(name, loader, ttl, items -> { }, System::nanoTime);
+    }
+
+    public ReferenceCache(String name, Supplier<List<T>> loader, Duration ttl,
+                          Consumer<List<T>> listener) {
+        this(name, loader, ttl, listener, System::nanoTime);
+    }
+
+    ReferenceCache(String name, Supplier<List<T>> loader, Duration ttl,
+                   Consumer<List<T>> listener, LongSupplier clock) {
+        this.name = name;
+        this.loader = loader;
+        this.listener = listener;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Current snapshot, loaded from DB if absent or expired.
+     * @return immutable list.
+     */
+    public List<T> get() {
+        var current = snapshot.get();
+        if (isFresh(current)) {
+            hits.incrementAndGet();
+            return current.items();
+        }
+        misses.incrementAndGet();
+        return reload(current);
+    }
+
+    /**
+     * Drop current snapshot, next {@link #get()} loads a new one.
+     */
+    public void refresh() {
+        snapshot.set(null);
+    }
+
+    /**
+     * Cache metrics.
+     * @return name, hits, misses, loads, size and age of snapshot in milliseconds.
+     */
+    public Map<String, Object> metrics() {
+        var current = snapshot.get();
+        var result = new LinkedHashMap<String, Object>();
+        result.put("name", name);
+        result.put("hits", hits.get());
+        result.put("misses", misses.get());
+        result.put("loads", loads.get());
+        result.put("size", current == null ? 0 : current.items().size());
+        result.put("ageMillis", current == null
+                ? -1 : Duration.ofNanos(clock.getAsLong() - current.loadedAt()).toMillis());
+        return result;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private boolean isFresh(Snapshot<T> current) {
+        return current != null && clock.getAsLong() - current.loadedAt() < ttlNanos;
+    }
+
+    private synchronized List<T> reload(Snapshot<T> expired) {
+        var current = snapshot.get();
+        if (current != expired && isFresh(current)) {
+            return current.items();
+        }
+        var items = List.copyOf(loader.get());
+        loads.incrementAndGet();
+        if (!items.isEmpty()) {
+            snapshot.set(new Snapshot<>(items, clock.getAsLong()));
+            listener.accept(items);
+        }
+        return items;
+    }
+
+    private record Snapshot<T>(List<T> items, long loadedAt) {
+    }
+}
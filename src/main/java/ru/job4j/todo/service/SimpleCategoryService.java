@@ -1,22 +1,46 @@
 package ru.job4j.todo.service;
 
-import lombok.AllArgsConstructor;
 import net.jcip.annotations.ThreadSafe;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.job4j.todo.model.Category;
 import ru.job4j.todo.repository.CategoryStore;
+import ru.job4j.todo.util.CategoryMask;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Category service. Categories are served from in-process cache,
+ * refreshed every reference.cache.ttl-seconds or on {@link #refresh()}.
+ * Every loaded snapshot is registered as names table of category masks.
+ */
 @ThreadSafe
-@AllArgsConstructor
 @Service
 public class SimpleCategoryService implements CategoryService {
 
-    private CategoryStore categoryStore;
+    private final ReferenceCache<Category> cache;
+
+    public SimpleCategoryService(CategoryStore categoryStore,
+                                 @Value("${reference.cache.ttl-seconds}") long ttlSeconds) {
+        this.cache = new ReferenceCache<>("categories", categoryStore::findAll,
+                Duration.ofSeconds(ttlSeconds), CategoryMask::register);
+    }
 
     @Override
     public List<Category> findAll() {
-        return categoryStore.findAll();
+        return cache.get();
+    }
+
+    @Override
+    public void refresh() {
+        cache.refresh();
+        cache.get();
+    }
+
+    @Override
+    public Map<String, Object> cacheMetrics() {
+        return cache.metrics();
     }
-}
\ No newline at end of file
+}
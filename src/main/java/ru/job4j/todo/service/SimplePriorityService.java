@@ -1,22 +1,43 @@
 package ru.job4j.todo.service;
 
-import lombok.AllArgsConstructor;
 import net.jcip.annotations.ThreadSafe;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.job4j.todo.model.Priority;
 import ru.job4j.todo.repository.PriorityStore;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Priority service. Priorities are served from in-process cache,
+ * refreshed every reference.cache.ttl-seconds or on {@link #refresh()}.
+ */
 @ThreadSafe
-@AllArgsConstructor
 @Service
 public class SimplePriorityService implements PriorityService {
 
-    private PriorityStore priorityStore;
+    private final ReferenceCache<Priority> cache;
+
+    public SimplePriorityService(PriorityStore priorityStore,
+                                 @Value("${reference.cache.ttl-seconds}") long ttlSeconds) {
+        this.cache = new ReferenceCache<>("priorities", priorityStore::findAll,
+                Duration.ofSeconds(ttlSeconds));
+    }
 
     @Override
     public List<Priority> findAll() {
-        return priorityStore.findAll();
+        return cache.get();
+    }
+
+    @Override
+    public void refresh() {
+        cache.refresh();
+    }
+
+    @Override
+    public Map<String, Object> cacheMetrics() {
+        return cache.metrics();
     }
-}
\ No newline at end of file
+}
@@ -2,12 +2,22 @@ package ru.job4j.todo.service;
 
 import lombok.AllArgsConstructor;
 import net.jcip.annotations.ThreadSafe;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import ru.job4j.todo.model.Slice;
+import ru.job4j.todo.model.TaskFilter;
+import ru.job4j.todo.model.TaskPatch;
+import ru.job4j.todo.model.TaskRow;
+import ru.job4j.todo.model.TaskSuggestion;
 import ru.job4j.todo.repository.TaskStore;
 import ru.job4j.todo.model.Task;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @ThreadSafe
 @AllArgsConstructor
@@ -22,28 +32,116 @@ public class SimpleTaskService implements TaskService {
     }
 
     @Override
-    public boolean update(Task task) {
+    public int saveAll(List<Task> tasks) {
+        return taskStore.saveAll(tasks);
+    }
+
+    @Override
+    public TaskPatch.Result update(Task task) {
         return taskStore.update(task);
     }
 
+    @Override
+    public TaskPatch.Result patch(int id, TaskPatch patch) {
+        return taskStore.patch(id, patch);
+    }
+
     @Override
     public boolean updateStatus(int id) {
         return taskStore.updateStatus(id);
     }
 
     @Override
-    public List<Task> findAll() {
-        return taskStore.findAll();
+    public int updateStatus(Collection<Integer> ids, int userId) {
+        return taskStore.updateStatus(ids, userId);
+    }
+
+    @Override
+    public Slice<TaskRow> findAll(int lastId, int limit) {
+        return taskStore.findAll(lastId, limit);
+    }
+
+    @Override
+    public Slice<TaskRow> findAllCompleted(boolean flag, int lastId, int limit) {
+        return taskStore.findAllCompleted(flag, lastId, limit);
+    }
+
+    @Override
+    public Slice<TaskRow> findAllNew(int lastId, int limit) {
+        return taskStore.findAllNew(lastId, limit);
+    }
+
+    @Override
+    public Slice<TaskRow> findAllByUser(int userId, int lastId, int limit) {
+        return taskStore.findAllByUser(userId, lastId, limit);
+    }
+
+    @Override
+    public Slice<TaskRow> findCompletedByUser(int userId, boolean flag, int lastId, int limit) {
+        return taskStore.findCompletedByUser(userId, flag, lastId, limit);
     }
 
     @Override
-    public List<Task> findAllCompleted(boolean flag) {
-        return taskStore.findAllCompleted(flag);
+    public Slice<TaskRow> findNewByUser(int userId, int lastId, int limit) {
+        return taskStore.findNewByUser(userId, lastId, limit);
     }
 
     @Override
-    public List<Task> findAllNew() {
-        return taskStore.findAllNew();
+    public Slice<TaskRow> findArchived(int lastId, int limit) {
+        return taskStore.findArchived(lastId, limit);
+    }
+
+    @Override
+    public Slice<TaskRow> findArchivedByUser(int userId, int lastId, int limit) {
+        return taskStore.findArchivedByUser(userId, lastId, limit);
+    }
+
+    @Override
+    public Slice<TaskRow> findByFilter(TaskFilter filter, String lastKey, int lastId, int limit) {
+        return taskStore.findByFilter(filter, lastKey, lastId, limit);
+    }
+
+    @Override
+    public Slice<TaskRow> search(String query, int page, int limit) {
+        return taskStore.search(query, page, limit);
+    }
+
+    @Override
+    public List<TaskSuggestion> suggest(String query, int limit) {
+        return taskStore.suggest(query, limit);
+    }
+
+    @Override
+    public Map<String, Object> suggestMetrics() {
+        return taskStore.suggestMetrics();
+    }
+
+    /**
+     * Build typeahead index once the application is up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSuggestions() {
+        taskStore.loadSuggestions();
+    }
+
+    @Override
+    public long count(TaskFilter filter) {
+        return taskStore.count(filter);
+    }
+
+    @Override
+    public long countNew(Integer userId) {
+        return taskStore.countNew(userId);
+    }
+
+    @Override
+    public long countArchived(Integer userId) {
+        return taskStore.countArchived(userId);
+    }
+
+    @Override
+    public long export(Consumer<TaskRow> consumer) {
+        return taskStore.export(consumer);
     }
 
     @Override
@@ -56,4 +154,13 @@ public class SimpleTaskService implements TaskService {
         return taskStore.delete(id);
     }
 
-}
\ No newline at end of file
+    @Override
+    public int delete(Collection<Integer> ids, int userId) {
+        return taskStore.delete(ids, userId);
+    }
+
+    @Override
+    public Map<String, Object> cacheMetrics() {
+        return taskStore.cacheMetrics();
+    }
+}
@@ -0,0 +1,116 @@
+package ru.job4j.todo.service;
+
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.job4j.todo.repository.TaskStore;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves completed tasks older than archive.age-days from tasks into
+ * tasks_archive by archive.cron. Every chunk of archive.chunk-size tasks
+ * is a separate transaction, followed by archive.pause-millis pause, so
+ * the archiver never holds locks for long and leaves DB time to requests.
+ * Watermark is ID of the last archived task; a run walks tasks past it
+ * and starts again from the lowest ID, since older tasks may have been
+ * completed after the previous run.
+ */
+@ThreadSafe
+@Service
+public class TaskArchiveService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TaskArchiveService.class.getName());
+
+    private final TaskStore taskStore;
+    private final int ageDays;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final Clock clock;
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+    private final AtomicLong archived = new AtomicLong();
+    private final AtomicLong watermark = new AtomicLong();
+    private final AtomicLong lastRunArchived = new AtomicLong();
+    private final AtomicLong lastRunMillis = new AtomicLong();
+
+    public TaskArchiveService(TaskStore taskStore,
+                              @Value("${archive.age-days}") int ageDays,
+                              @Value("${archive.chunk-size}") int chunkSize,
+                              @Value("${archive.pause-millis}") long pauseMillis) {
+        this(taskStore, ageDays, chunkSize, pauseMillis, Clock.systemDefaultZone());
+    }
+
+    TaskArchiveService(TaskStore taskStore, int ageDays, int chunkSize,
+                       long pauseMillis, Clock clock) {
+        this.taskStore = taskStore;
+        this.ageDays = ageDays;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Archive completed tasks chunk by chunk until none is left.
+     * Runs do not overlap.
+     * @return number of archived tasks.
+     */
+    @Scheduled(cron = "${archive.cron}")
+    public synchronized long archive() {
+        var start = System.nanoTime();
+        var before = LocalDateTime.now(clock).minusDays(ageDays);
+        var lastId = 0;
+        var result = 0L;
+        try {
+            var ids = taskStore.archive(before, lastId, chunkSize);
+            while (!ids.isEmpty()) {
+                lastId = ids.get(ids.size() - 1);
+                result += ids.size();
+                chunks.incrementAndGet();
+                archived.addAndGet(ids.size());
+                watermark.set(lastId);
+                if (ids.size() < chunkSize) {
+                    break;
+                }
+                Thread.sleep(pauseMillis);
+                ids = taskStore.archive(before, lastId, chunkSize);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        runs.incrementAndGet();
+        lastRunArchived.set(result);
+        lastRunMillis.set(Duration.ofNanos(System.nanoTime() - start).toMillis());
+        if (result > 0) {
+            LOG.info("Tasks archived: {}, watermark {}", result, lastId);
+        }
+        return result;
+    }
+
+    /**
+     * Archiver metrics.
+     * @return runs, chunks, archived tasks in total and by the last run,
+     * watermark, duration and throughput of the last run.
+     */
+    public Map<String, Object> metrics() {
+        var millis = lastRunMillis.get();
+        var lastArchived = lastRunArchived.get();
+        var result = new LinkedHashMap<String, Object>();
+        result.put("runs", runs.get());
+        result.put("chunks", chunks.get());
+        result.put("archived", archived.get());
+        result.put("watermark", watermark.get());
+        result.put("lastRunArchived", lastArchived);
+        result.put("lastRunMillis", millis);
+        result.put("lastRunTasksPerSecond", millis == 0 ? 0.0 : lastArchived * 1000.0 / millis);
+        return result;
+    }
+}
@@ -0,0 +1,81 @@
+package ru.job4j.todo.service;
+
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.job4j.todo.repository.TaskPartitionStore;
+import ru.job4j.todo.repository.TaskStore;
+
+import java.time.Clock;
+import java.time.YearMonth;
+
+/**
+ * Keeps monthly partitions of tasks table ready: creates partitions
+ * for the current and next months ahead of inserts, so that rows never
+ * land in the default partition, and detaches partitions older than
+ * retention period. Retention 0 keeps every partition attached.
+ * Tasks of detached partitions are evicted from task cache and typeahead index.
+ * Runs at startup and then by partition.cron.
+ */
+@ThreadSafe
+@Service
+public class TaskPartitionService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TaskPartitionService.class.getName());
+
+    private final TaskPartitionStore partitionStore;
+    private final TaskStore taskStore;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final Clock clock;
+
+    public TaskPartitionService(TaskPartitionStore partitionStore, TaskStore taskStore,
+                                @Value("${partition.months-ahead}") int monthsAhead,
+                                @Value("${partition.retention-months}") int retentionMonths) {
+        this(partitionStore, taskStore, monthsAhead, retentionMonths, Clock.systemDefaultZone());
+    }
+
+    TaskPartitionService(TaskPartitionStore partitionStore, TaskStore taskStore,
+                         int monthsAhead, int retentionMonths, Clock clock) {
+        this.partitionStore = partitionStore;
+        this.taskStore = taskStore;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.clock = clock;
+    }
+
+    /**
+     * Create missing future partitions and detach expired ones.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${partition.cron}")
+    public void maintain() {
+        if (!partitionStore.isSupported()) {
+            return;
+        }
+        var current = YearMonth.now(clock);
+        for (int i = 0; i <= monthsAhead; i++) {
+            partitionStore.create(current.plusMonths(i));
+        }
+        if (retentionMonths <= 0) {
+            return;
+        }
+        var oldest = current.minusMonths(retentionMonths);
+        var detached = false;
+        for (var name : partitionStore.findAll()) {
+            var month = TaskPartitionStore.monthOf(name);
+            if (month.isBefore(oldest) && partitionStore.detach(month)) {
+                detached = true;
+                LOG.info("Partition {} detached from tasks", name);
+            }
+        }
+        if (detached) {
+            taskStore.evictAll();
+        }
+    }
+}
@@ -1,17 +1,43 @@
 package ru.job4j.todo.service;
 
+import ru.job4j.todo.model.Slice;
+import ru.job4j.todo.model.TaskFilter;
+import ru.job4j.todo.model.TaskPatch;
+import ru.job4j.todo.model.TaskRow;
+import ru.job4j.todo.model.TaskSuggestion;
 import ru.job4j.todo.model.Task;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface TaskService {
     Optional<Task> save(Task task);
-    boolean update(Task task);
+    int saveAll(List<Task> tasks);
+    TaskPatch.Result update(Task task);
+    TaskPatch.Result patch(int id, TaskPatch patch);
     boolean updateStatus(int id);
-    List<Task> findAll();
-    List<Task> findAllCompleted(boolean flag);
-    List<Task> findAllNew();
+    int updateStatus(Collection<Integer> ids, int userId);
+    Slice<TaskRow> findAll(int lastId, int limit);
+    Slice<TaskRow> findAllCompleted(boolean flag, int lastId, int limit);
+    Slice<TaskRow> findAllNew(int lastId, int limit);
+    Slice<TaskRow> findAllByUser(int userId, int lastId, int limit);
+    Slice<TaskRow> findCompletedByUser(int userId, boolean flag, int lastId, int limit);
+    Slice<TaskRow> findNewByUser(int userId, int lastId, int limit);
+    Slice<TaskRow> findArchived(int lastId, int limit);
+    Slice<TaskRow> findArchivedByUser(int userId, int lastId, int limit);
+    Slice<TaskRow> findByFilter(TaskFilter filter, String lastKey, int lastId, int limit);
+    Slice<TaskRow> search(String query, int page, int limit);
+    List<TaskSuggestion> suggest(String query, int limit);
+    Map<String, Object> suggestMetrics();
+    long count(TaskFilter filter);
+    long countNew(Integer userId);
+    long countArchived(Integer userId);
+    long export(Consumer<TaskRow> consumer);
     Optional<Task> findById(int id);
     boolean delete(int id);
+    Map<String, Object> cacheMetrics();
+    int delete(Collection<Integer> ids, int userId);
 }
\ No newline at end of file
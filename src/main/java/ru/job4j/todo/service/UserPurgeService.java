@@ -0,0 +1,132 @@
+package ru.job4j.todo.service;
+
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.job4j.todo.model.UserPurge;
+import ru.job4j.todo.repository.TaskStore;
+import ru.job4j.todo.repository.UserPurgeStore;
+import ru.job4j.todo.repository.UserStore;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Purges users together with all their tasks. Purge request is only
+ * registered in user_purges; the purge itself runs in background every
+ * purge.delay-millis: tasks with their categories, then archived tasks,
+ * are deleted in batches of purge.batch-size, each batch in its own short
+ * transaction followed by purge.pause-millis pause, and the user is
+ * deleted last. Unfinished purges, e.g. interrupted by a crash, are
+ * picked up again by the next run.
+ */
+@ThreadSafe
+@Service
+public class UserPurgeService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserPurgeService.class.getName());
+
+    private final UserStore userStore;
+    private final TaskStore taskStore;
+    private final UserPurgeStore purgeStore;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong tasksDeleted = new AtomicLong();
+    private final AtomicLong usersPurged = new AtomicLong();
+    private final AtomicLong lastBatchMillis = new AtomicLong();
+    private final AtomicReference<String> current = new AtomicReference<>();
+
+    public UserPurgeService(UserStore userStore, TaskStore taskStore, UserPurgeStore purgeStore,
+                            @Value("${purge.batch-size}") int batchSize,
+                            @Value("${purge.pause-millis}") long pauseMillis) {
+        this.userStore = userStore;
+        this.taskStore = taskStore;
+        this.purgeStore = purgeStore;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    /**
+     * Register purge of user, it is run by the next {@link #resume()}.
+     * Administrator is never purged.
+     * @param login login of user.
+     * @return true if user found, is not administrator and purge registered.
+     */
+    public boolean purge(String login) {
+        return userStore.findByLogin(login)
+                .filter(user -> !user.isAdmin())
+                .map(user -> purgeStore.register(user.getId()))
+                .orElse(false);
+    }
+
+    /**
+     * Run unfinished purges one after another, the oldest first. Runs do not overlap.
+     * @return number of users purged.
+     */
+    @Scheduled(fixedDelayString = "${purge.delay-millis}")
+    public synchronized int resume() {
+        var result = 0;
+        try {
+            for (var purge : purgeStore.findUnfinished()) {
+                current.set(purge.login());
+                deleteInBatches(purge, taskStore::deleteByUser);
+                deleteInBatches(purge, taskStore::deleteArchivedByUser);
+                if (purgeStore.finish(purge.userId())) {
+                    result++;
+                    usersPurged.incrementAndGet();
+                    LOG.info("User {} purged", purge.login());
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } finally {
+            current.set(null);
+        }
+        return result;
+    }
+
+    /**
+     * Delete batches until a short one comes, saving progress after each.
+     * @param purge purge.
+     * @param batch deletes one batch of user tasks, returns number of deleted tasks.
+     */
+    private void deleteInBatches(UserPurge purge, IntBinaryOperator batch)
+            throws InterruptedException {
+        int deleted;
+        do {
+            var start = System.nanoTime();
+            deleted = batch.applyAsInt(purge.userId(), batchSize);
+            lastBatchMillis.set(Duration.ofNanos(System.nanoTime() - start).toMillis());
+            if (deleted > 0) {
+                purgeStore.addProgress(purge.userId(), deleted);
+                batches.incrementAndGet();
+                tasksDeleted.addAndGet(deleted);
+                Thread.sleep(pauseMillis);
+            }
+        } while (deleted == batchSize);
+    }
+
+    /**
+     * Purge metrics.
+     * @return unfinished purges, login being purged, batches, deleted tasks,
+     * purged users and duration of the last batch.
+     */
+    public Map<String, Object> metrics() {
+        var result = new LinkedHashMap<String, Object>();
+        result.put("pending", purgeStore.findUnfinished());
+        result.put("current", current.get());
+        result.put("batches", batches.get());
+        result.put("tasksDeleted", tasksDeleted.get());
+        result.put("usersPurged", usersPurged.get());
+        result.put("lastBatchMillis", lastBatchMillis.get());
+        return result;
+    }
+}
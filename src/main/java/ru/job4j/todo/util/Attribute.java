@@ -7,6 +7,7 @@ package ru.job4j.todo.util;
  */
 public class Attribute {
     public static final String MESSAGE = "message";
+    public static final String ERRORS = "errors";
     public static final String TASKS = "tasks";
     public static final String TASK = "task";
     public static final String USER = "user";
@@ -15,5 +16,18 @@ public class Attribute {
     public static final String CATEGORY_IDS = "categoryIds";
     public static final String SELECTED_IDS = "selectedIds";
     public static final String TIMEZONES = "timezones";
+    public static final String NEXT_CURSOR = "nextCursor";
+    public static final String TOTAL = "total";
+    public static final String AFFECTED = "affected";
+    public static final String IDS = "ids";
+    public static final String VIEW = "view";
+    public static final String ARCHIVE = "archive";
+    public static final String FILTER = "filter";
+    public static final String SORTS = "sorts";
+    public static final String QUERY = "query";
+    public static final String NEXT_PAGE = "nextPage";
+    public static final String ID = "id";
+    public static final String VERSION = "version";
+    public static final String REGISTERED = "registered";
 
 }
\ No newline at end of file
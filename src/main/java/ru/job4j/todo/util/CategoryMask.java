@@ -0,0 +1,103 @@
+package ru.job4j.todo.util;
+
+import net.jcip.annotations.ThreadSafe;
+import ru.job4j.todo.model.Category;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Util class CategoryMask encodes categories of a task into tasks.category_mask,
+ * one bit per category: bit (id - 1) is set for category with ID from 1 to 64.
+ * Names are decoded from id to name table of all categories, registered
+ * every time category cache loads them. Once there are more than 64 categories, masks stop
+ * being decodable and categories are read from tasks_categories again.
+ * @author Lenar Sharipov
+ * @version 1.0
+ */
+@ThreadSafe
+public class CategoryMask {
+    public static final int CAPACITY = Long.SIZE;
+
+    private static volatile Map<Integer, String> names = Map.of();
+
+    private CategoryMask() {
+    }
+
+    public static long of(Collection<Category> categories) {
+        return ofIds(categories.stream().map(Category::getId).toList());
+    }
+
+    /**
+     * Mask of category ids, ids out of 1..64 are skipped.
+     * @param ids category ids.
+     * @return mask.
+     */
+    public static long ofIds(Collection<Integer> ids) {
+        var result = 0L;
+        for (var id : ids) {
+            if (fits(id)) {
+                result |= 1L << (id - 1);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Whether every category has a bit in mask.
+     * @param ids category ids.
+     * @return true if every ID is from 1 to 64.
+     */
+    public static boolean fitAll(Collection<Integer> ids) {
+        return ids.stream().allMatch(CategoryMask::fits);
+    }
+
+    /**
+     * Register id to name table of all categories.
+     * @param categories all categories.
+     */
+    public static void register(Collection<Category> categories) {
+        var table = new TreeMap<Integer, String>();
+        categories.forEach(category -> table.put(category.getId(), category.getName()));
+        names = table;
+    }
+
+    public static boolean isRegistered() {
+        return !names.isEmpty();
+    }
+
+    /**
+     * Whether names of task categories can be decoded from its mask.
+     * @return true if table is registered and every category fits into mask.
+     */
+    public static boolean isDecodable() {
+        var table = names;
+        return !table.isEmpty() && fitAll(table.keySet());
+    }
+
+    /**
+     * Names of registered categories of mask ordered by category ID.
+     * @param mask mask.
+     * @return names.
+     */
+    public static List<String> names(long mask) {
+        var result = new ArrayList<String>(Long.bitCount(mask));
+        var table = names;
+        var rest = mask;
+        while (rest != 0) {
+            var name = table.get(Long.numberOfTrailingZeros(rest) + 1);
+            if (name != null) {
+                result.add(name);
+            }
+            rest &= rest - 1;
+        }
+        return result;
+    }
+
+    private static boolean fits(Integer id) {
+        return id != null && id >= 1 && id <= CAPACITY;
+    }
+}
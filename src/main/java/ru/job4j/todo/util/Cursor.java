@@ -0,0 +1,93 @@
+package ru.job4j.todo.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Util class Cursor encodes and decodes opaque keyset pagination tokens.
+ * @author Lenar Sharipov
+ * @version 1.0
+ */
+public class Cursor {
+    /**
+     * Cursor pointing before the first row.
+     */
+    public static final int START = 0;
+
+    private static final String PREFIX = "id:";
+    private static final String KEY_PREFIX = "key:";
+    private static final String SEPARATOR = "|";
+
+    private Cursor() {
+    }
+
+    /**
+     * Encode last seen ID into URL-safe token.
+     * @param lastId last seen ID.
+     * @return token.
+     */
+    public static String encode(int lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Encode sort key and ID of the last seen row into URL-safe token.
+     * @param lastKey sort key of the last seen row, null if rows are ordered by ID.
+     * @param lastId last seen ID.
+     * @return token.
+     */
+    public static String encode(String lastKey, int lastId) {
+        if (lastKey == null) {
+            return encode(lastId);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (KEY_PREFIX + lastKey + SEPARATOR + PREFIX + lastId)
+                        .getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode token into sort key of the last seen row.
+     * @param token token.
+     * @return sort key, null if token is missing, malformed or has no key.
+     */
+    public static String decodeKey(String token) {
+        String result = null;
+        if (token == null || token.isBlank()) {
+            return result;
+        }
+        try {
+            var value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            var end = value.lastIndexOf(SEPARATOR);
+            if (value.startsWith(KEY_PREFIX) && end > 0) {
+                result = value.substring(KEY_PREFIX.length(), end);
+            }
+        } catch (IllegalArgumentException exception) {
+            result = null;
+        }
+        return result;
+    }
+
+    /**
+     * Decode token into last seen ID. Missing or malformed token means first page.
+     * @param token token.
+     * @return last seen ID.
+     */
+    public static int decode(String token) {
+        var result = START;
+        if (token == null || token.isBlank()) {
+            return result;
+        }
+        try {
+            var value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            var start = value.lastIndexOf(SEPARATOR) + 1;
+            if (value.startsWith(PREFIX, start)) {
+                result = Math.max(START,
+                        Integer.parseInt(value.substring(start + PREFIX.length())));
+            }
+        } catch (IllegalArgumentException exception) {
+            result = START;
+        }
+        return result;
+    }
+}
@@ -11,4 +11,20 @@ public class Key {
     public static final String F_CREATED = "fCreated";
     public static final String F_LOGIN = "fLogin";
     public static final String F_PASSWORD = "fPassword";
+    public static final String F_LAST_ID = "fLastId";
+    public static final String F_IDS = "fIds";
+    public static final String F_USER_ID = "fUserId";
+    public static final String F_COUNT = "fCount";
+    public static final String F_PRIORITY_IDS = "fPriorityIds";
+    public static final String F_CATEGORY_IDS = "fCategoryIds";
+    public static final String F_CATEGORY_MASK = "fCategoryMask";
+    public static final String F_CREATED_FROM = "fCreatedFrom";
+    public static final String F_CREATED_TO = "fCreatedTo";
+    public static final String F_TEXT = "fText";
+    public static final String F_LAST_KEY = "fLastKey";
+    public static final String F_QUERY = "fQuery";
+    public static final String F_TERM = "fTerm";
+    public static final String F_VERSION = "fVersion";
+    public static final String F_DESCRIPTION = "fDescription";
+    public static final String F_PRIORITY = "fPriority";
 }
\ No newline at end of file
@@ -9,9 +9,32 @@ public class Message {
     public static final String TASK_NOT_FOUND = "Task with specified ID not found";
     public static final String TASKS_NOT_FOUND = "Tasks not found";
     public static final String TASK_NOT_SAVED = "Task with specified ID not added";
+    public static final String TASKS_NOT_SAVED = "Tasks not added";
+    public static final String TASKS_NOT_UPDATED = "Status of tasks not updated";
+    public static final String TASKS_NOT_DELETED = "Tasks not deleted";
+    public static final String TASKS_COMPLETED = "Tasks completed: %d";
+    public static final String TASKS_DELETED = "Tasks deleted: %d";
+    public static final String PARTITIONS_NOT_FOUND = "Partitions of tasks not found";
+    public static final String PARTITION_NOT_CREATED = "Partition of tasks not created";
+    public static final String PARTITION_NOT_DETACHED = "Partition of tasks not detached";
+    public static final String TASKS_NOT_ARCHIVED = "Completed tasks not archived";
+    public static final String ARCHIVED_TASKS_NOT_FOUND = "Archived tasks not found";
+    public static final String TASKS_NOT_SEARCHED = "Tasks search failed";
+    public static final String SUGGESTIONS_NOT_LOADED = "Task suggestions not loaded";
+    public static final String TASKS_NOT_IMPORTED = "Tasks not imported, check file format";
+    public static final String IMPORT_LINE_INVALID = "Line %d: %s";
+    public static final String IMPORT_FIELDS_INVALID = "%d fields instead of %d";
+    public static final String IMPORT_CREATED_INVALID = "invalid creation time \"%s\"";
+    public static final String IMPORT_PRIORITY_UNKNOWN = "unknown priority \"%s\"";
+    public static final String IMPORT_CATEGORY_UNKNOWN = "unknown category \"%s\"";
     public static final String TASK_NOT_UPDATED = "Task with specified ID not updated";
+    public static final String TASK_VERSION_CONFLICT = "Task was changed by another user";
+    public static final String TASK_PATCH_INVALID = "Version and at least one field required";
+    public static final String TASK_CATEGORY_UNKNOWN = "Category with specified ID not found";
     public static final String STATUS_NOT_UPDATED = "Status of specified task not updated";
     public static final String TASK_NOT_DELETED = "Task with specified ID not deleted";
+    public static final String TASKS_NOT_COUNTED = "Tasks not counted";
+    public static final String TASKS_NOT_EXPORTED = "Tasks not exported";
 
     public static final String PRIORITIES_NOT_FOUND = "Priorities not found";
 
@@ -20,6 +43,13 @@ public class Message {
     public static final String LOGIN_PASSWORD_INCORRECT = "Entered login or password incorrect";
     public static final String NOT_UNIQUE_LOGIN = "Entered email is occupied by another user";
     public static final String USER_NOT_DELETED = "Specified user not deleted";
+    public static final String USER_NOT_FOUND = "User with specified login not found";
+    public static final String PURGE_NOT_REGISTERED = "Purge of user not registered";
+    public static final String PURGE_FORBIDDEN = "Only the user or administrator may purge user";
+    public static final String PURGE_ADMIN_FORBIDDEN = "Administrator can not be purged";
+    public static final String PURGES_NOT_FOUND = "Unfinished purges not found";
+    public static final String PURGE_NOT_UPDATED = "Progress of user purge not saved";
+    public static final String PURGE_NOT_FINISHED = "User not purged, tasks remain";
     public static final String USERS_NOT_FOUND = "Users not found";
     public static final String USER_NOT_SAVED = "User with specified login and password not added";
 
@@ -11,6 +11,7 @@ public class Page {
     public static final String TASKS_LIST = "tasks/list";
     public static final String TASKS_COMPLETED = "tasks/completed";
     public static final String TASKS_NEW = "tasks/new";
+    public static final String TASKS_SEARCH = "tasks/search";
     public static final String TASKS_CREATE = "tasks/create";
     public static final String TASKS_ONE = "tasks/one";
     public static final String TASKS_EDIT = "/tasks/edit";
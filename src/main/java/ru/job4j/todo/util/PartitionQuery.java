@@ -0,0 +1,23 @@
+package ru.job4j.todo.util;
+
+/**
+ * Util class PartitionQuery contains PostgreSQL statements managing partitions of tasks table.
+ * @author Lenar Sharipov
+ * @version 1.0
+ */
+public class PartitionQuery {
+    public static final String PREFIX = "tasks_";
+    public static final String SELECT_PARTITIONS = """
+            SELECT c.relname
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = 'tasks' AND c.relname <> 'tasks_default'
+            ORDER BY c.relname
+            """;
+    public static final String CREATE_PARTITION =
+            "CREATE TABLE IF NOT EXISTS %s PARTITION OF tasks FOR VALUES FROM ('%s') TO ('%s')";
+    public static final String DETACH_PARTITION = "ALTER TABLE tasks DETACH PARTITION %s";
+    public static final String DELETE_PARTITION_CATEGORIES =
+            "DELETE FROM tasks_categories WHERE task_id IN (SELECT id FROM %s)";
+}
@@ -0,0 +1,36 @@
+package ru.job4j.todo.util;
+
+/**
+ * Util class PurgeQuery contains queries of user purges.
+ * @author Lenar Sharipov
+ * @version 1.0
+ */
+public class PurgeQuery {
+    public static final String PURGES_TABLE = "user_purges";
+    public static final String INSERT_PURGE = """
+            INSERT INTO user_purges (user_id, login)
+            SELECT u.id, u.login FROM users u
+            WHERE u.id = :fUserId
+            AND NOT EXISTS (SELECT 1 FROM user_purges p WHERE p.user_id = u.id)
+            """;
+    public static final String SELECT_UNFINISHED = """
+            SELECT user_id, login, tasks_deleted
+            FROM user_purges
+            WHERE finished IS NULL
+            ORDER BY started ASC
+            """;
+    public static final String ADD_PROGRESS = """
+            UPDATE user_purges SET tasks_deleted = tasks_deleted + :fCount
+            WHERE user_id = :fUserId
+            """;
+    public static final String DELETE_USER = """
+            DELETE FROM users
+            WHERE id = :fUserId
+            AND NOT EXISTS (SELECT 1 FROM tasks_archive a WHERE a.user_id = :fUserId)
+            """;
+    public static final String FINISH_PURGE = """
+            UPDATE user_purges SET finished = now()
+            WHERE user_id = :fUserId
+            AND NOT EXISTS (SELECT 1 FROM users u WHERE u.id = :fUserId)
+            """;
+}
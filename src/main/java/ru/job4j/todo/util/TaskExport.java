@@ -0,0 +1,136 @@
+package ru.job4j.todo.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.job4j.todo.model.TaskRow;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Util class TaskExport formats task rows as CSV and NDJSON lines
+ * and reads CSV records back for import.
+ * @author Lenar Sharipov
+ * @version 1.0
+ */
+public class TaskExport {
+    public static final String CSV_CONTENT_TYPE = "text/csv;charset=UTF-8";
+    public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson;charset=UTF-8";
+    public static final String CSV_FILE = "attachment; filename=tasks.csv";
+    public static final String NDJSON_FILE = "attachment; filename=tasks.ndjson";
+    public static final String CSV_HEADER = "id,description,categories,created,done,priority,owner";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String QUOTE = "\"";
+    private static final char QUOTE_CHAR = '"';
+    private static final char SEPARATOR = ',';
+
+    private TaskExport() {
+    }
+
+    /**
+     * Format task row as CSV line. Categories are separated by semicolon.
+     * @param row task row.
+     * @return CSV line without line separator.
+     */
+    public static String toCsv(TaskRow row) {
+        return Stream.of(
+                        String.valueOf(row.id()),
+                        escape(row.description()),
+                        escape(String.join(";", row.categoryNames())),
+                        String.valueOf(row.createdAt()),
+                        String.valueOf(row.done()),
+                        escape(row.priority()),
+                        escape(row.owner()))
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * Format task row as JSON object on one line.
+     * @param row task row.
+     * @return JSON line without line separator.
+     */
+    public static String toJson(TaskRow row) {
+        var object = new LinkedHashMap<String, Object>();
+        object.put("id", row.id());
+        object.put("description", row.description());
+        object.put("categories", row.categoryNames());
+        object.put("created", String.valueOf(row.createdAt()));
+        object.put("done", row.done());
+        object.put("priority", row.priority());
+        object.put("owner", row.owner());
+        try {
+            return MAPPER.writeValueAsString(object);
+        } catch (JsonProcessingException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Read next CSV record written by {@link #toCsv(TaskRow)}.
+     * Quoted fields may contain separators, doubled quotes and line breaks.
+     * @param reader reader positioned at the start of a record.
+     * @return fields of the record or null at the end of input.
+     */
+    public static List<String> readCsv(BufferedReader reader) throws IOException {
+        var line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        var fields = new ArrayList<String>();
+        var field = new StringBuilder();
+        var quoted = false;
+        var i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                line = reader.readLine();
+                if (line == null) {
+                    throw new IOException("Unterminated quoted field");
+                }
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            var c = line.charAt(i++);
+            if (quoted) {
+                if (c != QUOTE_CHAR) {
+                    field.append(c);
+                } else if (i < line.length() && line.charAt(i) == QUOTE_CHAR) {
+                    field.append(QUOTE_CHAR);
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == QUOTE_CHAR) {
+                quoted = true;
+            } else if (c == SEPARATOR) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains(QUOTE)
+                || value.contains("\n") || value.contains("\r")) {
+            return QUOTE + value.replace(QUOTE, QUOTE + QUOTE) + QUOTE;
+        }
+        return value;
+    }
+}
@@ -7,17 +7,152 @@ package ru.job4j.todo.util;
  */
 public class TaskQuery {
 
-    public static final String UPDATE_STATUS = "UPDATE Task SET done = true WHERE id = :fId";
+    public static final String UPDATE_STATUS =
+            "UPDATE VERSIONED Task SET done = true WHERE id = :fId";
+    public static final String UPDATE_STATUS_ALL = "UPDATE VERSIONED Task t SET t.done = true";
+    public static final String PATCH = """
+            UPDATE VERSIONED Task t SET %s
+            WHERE t.id = :fId AND t.version = :fVersion""";
+    public static final String SET_DESCRIPTION = "t.description = :fDescription";
+    public static final String SET_DONE = "t.done = :fDone";
+    public static final String SET_PRIORITY = "t.priority = :fPriority";
+    public static final String SET_CATEGORY_MASK = "t.categoryMask = :fCategoryMask";
+    public static final String SELECT_VERSION = "SELECT t.version FROM Task t WHERE t.id = :fId";
+    public static final String DELETE_CATEGORIES_OF_TASK =
+            "DELETE FROM tasks_categories WHERE task_id = :fId";
+    public static final String AND_CATEGORY_NOT_IN = "AND category_id NOT IN (:fCategoryIds)";
+    public static final String INSERT_MISSING_CATEGORIES = """
+            INSERT INTO tasks_categories (task_id, category_id)
+            SELECT :fId, c.id FROM categories c
+            WHERE c.id IN (:fCategoryIds)
+            AND NOT EXISTS (
+                SELECT 1 FROM tasks_categories tc WHERE tc.task_id = :fId AND tc.category_id = c.id)
+            """;
     public static final String DELETE_TASK = "DELETE Task t";
     public static final String ORDER_BY_ID_ASC = "ORDER BY t.id ASC";
     public static final String WHERE_ID = "WHERE t.id = :fId";
+    public static final String WHERE_ID_IN = "WHERE t.id IN (:fIds)";
     public static final String WHERE_DONE = "WHERE t.done = :fDone";
     public static final String WHERE_CREATED = "WHERE t.created >= :fCreated";
-    public static final String SELECT_DISTINCT = """
-            SELECT DISTINCT t
+    public static final String WHERE_ID_AFTER = "WHERE t.id > :fLastId";
+    public static final String AND_ID_AFTER = "AND t.id > :fLastId";
+    public static final String WHERE_USER = "WHERE t.user.id = :fUserId";
+    public static final String AND_USER = "AND t.user.id = :fUserId";
+    public static final String AND_DONE = "AND t.done = :fDone";
+    public static final String AND_CREATED = "AND t.created >= :fCreated";
+    public static final String SELECT_ID = "SELECT t.id FROM Task t";
+    public static final String APPROXIMATE_COUNT_POSTGRESQL = """
+            SELECT COALESCE(SUM(GREATEST(c.reltuples, 0)), 0)
+            FROM pg_class c
+            WHERE c.oid = 'tasks'::regclass AND c.relkind = 'r'
+            OR c.oid IN (SELECT i.inhrelid FROM pg_inherits i WHERE i.inhparent = 'tasks'::regclass)
+            """;
+    public static final String APPROXIMATE_COUNT_H2 = """
+            SELECT ROW_COUNT_ESTIMATE
+            FROM INFORMATION_SCHEMA.TABLES
+            WHERE TABLE_NAME = 'TASKS'
+            """;
+    public static final String NO_FILTER = "";
+    public static final String COUNT_TASKS = "SELECT COUNT(t.id) FROM Task t";
+    public static final String COUNT_ARCHIVED = "SELECT COUNT(*) FROM tasks_archive a WHERE 1 = 1";
+    public static final String SELECT_ROW = """
+            SELECT new ru.job4j.todo.model.TaskRow(
+                t.id, t.description, t.created, t.done, p.name, u.login, t.categoryMask)
+            FROM Task t
+            LEFT JOIN t.priority p
+            LEFT JOIN t.user u
+            """;
+    public static final String SELECT_EXPORT = """
+            SELECT t.id, t.description, t.created, t.done, p.name, u.login, c.name
+            FROM Task t
+            LEFT JOIN t.priority p
+            LEFT JOIN t.user u
+            LEFT JOIN t.categories c
+            ORDER BY t.id ASC, c.id ASC
+            """;
+    public static final String SELECT_DESCRIPTIONS =
+            "SELECT t.id, t.description FROM Task t ORDER BY t.id DESC";
+    public static final String SELECT_CATEGORY_NAMES = """
+            SELECT t.id, c.name
             FROM Task t
-            LEFT JOIN FETCH t.priority
-            LEFT JOIN FETCH t.categories
+            JOIN t.categories c
+            WHERE t.id IN (:fIds)
+            ORDER BY c.id ASC
+            """;
+    public static final String SELECT_ARCHIVABLE_ID = """
+            SELECT t.id FROM Task t
+            WHERE t.done = true AND t.created < :fCreated AND t.id > :fLastId
+            ORDER BY t.id ASC
+            """;
+    public static final String INSERT_ARCHIVE = """
+            INSERT INTO tasks_archive (id, description, created, done, user_id, priority_id)
+            SELECT id, description, created, done, user_id, priority_id
+            FROM tasks
+            WHERE id IN (:fIds)
+            """;
+    public static final String INSERT_CATEGORIES_ARCHIVE = """
+            INSERT INTO tasks_categories_archive (task_id, category_id)
+            SELECT task_id, category_id
+            FROM tasks_categories
+            WHERE task_id IN (:fIds)
+            """;
+    public static final String SELECT_ARCHIVED_ROW = """
+            SELECT a.id, a.description, a.created, a.done, p.name, u.login
+            FROM tasks_archive a
+            LEFT JOIN priorities p ON p.id = a.priority_id
+            LEFT JOIN users u ON u.id = a.user_id
+            WHERE a.id > :fLastId
+            """;
+    public static final String AND_ARCHIVED_USER = "AND a.user_id = :fUserId";
+    public static final String ORDER_BY_ARCHIVED_ID_ASC = "ORDER BY a.id ASC";
+    public static final String SELECT_ARCHIVED_CATEGORY_NAMES = """
+            SELECT ca.task_id, c.name
+            FROM tasks_categories_archive ca
+            JOIN categories c ON c.id = ca.category_id
+            WHERE ca.task_id IN (:fIds)
+            ORDER BY c.id ASC
+            """;
+    public static final String SELECT_ARCHIVED_ID_BY_USER =
+            "SELECT id FROM tasks_archive WHERE user_id = :fUserId ORDER BY id ASC";
+    public static final String DELETE_CATEGORIES_ARCHIVE =
+            "DELETE FROM tasks_categories_archive WHERE task_id IN (:fIds)";
+    public static final String DELETE_ARCHIVE = "DELETE FROM tasks_archive WHERE id IN (:fIds)";
+    public static final String ARCHIVE_TABLE = "tasks_archive";
+    public static final String CATEGORIES_ARCHIVE_TABLE = "tasks_categories_archive";
+    public static final String CATEGORIES_TABLE = "tasks_categories";
+    public static final String SELECT_FILTERED_ROW = """
+            SELECT t.id, t.description, t.created, t.done, p.name, u.login, p.position,
+                   t.categoryMask
+            FROM Task t
+            LEFT JOIN t.priority p
+            LEFT JOIN t.user u
+            """;
+    public static final String DONE_IS = "t.done = :fDone";
+    public static final String PRIORITY_IN = "t.priority.id IN (:fPriorityIds)";
+    public static final String CATEGORY_IN = """
+            EXISTS (SELECT 1 FROM t.categories c WHERE c.id IN (:fCategoryIds))""";
+    public static final String CATEGORY_MASK_ANY =
+            "function('bitand', t.categoryMask, cast(:fCategoryMask as long)) <> 0";
+    public static final String CREATED_FROM = "t.created >= :fCreatedFrom";
+    public static final String CREATED_TO = "t.created < :fCreatedTo";
+    public static final String USER_IS = "t.user.id = :fUserId";
+    public static final String DESCRIPTION_LIKE = "LOWER(t.description) LIKE :fText ESCAPE '!'";
+    public static final String ID_AFTER = "t.id %s :fLastId";
+    public static final String KEY_AFTER =
+            "(%1$s %2$s :fLastKey OR (%1$s = :fLastKey AND t.id %2$s :fLastId))";
+    public static final String SELECT_SEARCH_ROW = """
+            SELECT t.id, t.description, t.created, t.done, p.name, u.login, t.category_mask
+            FROM tasks t
+            LEFT JOIN priorities p ON p.id = t.priority_id
+            LEFT JOIN users u ON u.id = t.user_id
             """;
+    public static final String SEARCH_POSTGRESQL = """
+            WHERE t.description_tsv @@ websearch_to_tsquery('simple', :fQuery)
+            ORDER BY ts_rank(t.description_tsv, websearch_to_tsquery('simple', :fQuery)) DESC,
+                     t.id DESC""";
+    public static final String SEARCH_TERM = "LOWER(t.description) LIKE :fTerm%d ESCAPE '!'";
+    public static final String ORDER_BY_SEARCH_ID_DESC = "ORDER BY t.id DESC";
+    public static final String DETAIL_GRAPH = "Task.detail";
+    public static final String LISTS_REGION = "task-lists";
 
 }
\ No newline at end of file
@@ -1,9 +1,11 @@
 package ru.job4j.todo.util;
 
 import ru.job4j.todo.model.Task;
+import ru.job4j.todo.model.TaskRow;
 import ru.job4j.todo.model.User;
 
 import javax.servlet.http.HttpServletRequest;
+import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
@@ -40,12 +42,32 @@ public class TimezoneUtil {
      * @param request HttpServletRequest
      */
     public static void convertTaskTime(Task task, HttpServletRequest request) {
+        task.setCreated(toUserTime(task.getCreated(), request));
+    }
+
+    /**
+     * Convert displayed time of task row upon user's timezone setting.
+     * @param row task row
+     * @param request HttpServletRequest
+     * @return task row with converted time
+     */
+    public static TaskRow convertRowTime(TaskRow row, HttpServletRequest request) {
+        return row.withCreatedAt(toUserTime(row.createdAt(), request));
+    }
+
+    /**
+     * Timezone of current user.
+     * @param request HttpServletRequest
+     * @return user's timezone
+     */
+    public static ZoneId userZone(HttpServletRequest request) {
         var user = (User) request.getAttribute(Attribute.USER);
-        var zoneId = user.getTimezone();
-        task.setCreated(
-                ZonedDateTime.of(task.getCreated(), ZoneId.of(DEFAULT_TIMEZONE_ID))
-                        .withZoneSameInstant(ZoneId.of(zoneId)).toLocalDateTime()
-        );
+        return ZoneId.of(user.getTimezone());
+    }
+
+    private static LocalDateTime toUserTime(LocalDateTime time, HttpServletRequest request) {
+        return ZonedDateTime.of(time, ZoneId.of(DEFAULT_TIMEZONE_ID))
+                .withZoneSameInstant(userZone(request)).toLocalDateTime();
     }
 
 }
\ No newline at end of file
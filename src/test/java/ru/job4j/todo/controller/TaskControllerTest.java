@@ -1,55 +1,87 @@
 package ru.job4j.todo.controller;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.ui.ConcurrentModel;
+import org.springframework.web.servlet.mvc.support.RedirectAttributesModelMap;
 import ru.job4j.todo.model.Category;
 import ru.job4j.todo.model.Priority;
+import ru.job4j.todo.model.Slice;
 import ru.job4j.todo.model.Task;
+import ru.job4j.todo.model.TaskFilter;
+import ru.job4j.todo.model.TaskFilterForm;
+import ru.job4j.todo.model.TaskPatch;
+import ru.job4j.todo.model.TaskRow;
+import ru.job4j.todo.model.TaskSort;
 import ru.job4j.todo.model.User;
+import ru.job4j.todo.repository.CategoryStore;
+import ru.job4j.todo.repository.CrudRepository;
+import ru.job4j.todo.repository.PriorityStore;
+import ru.job4j.todo.repository.RequestStatistics;
+import ru.job4j.todo.repository.TaskStore;
+import ru.job4j.todo.repository.UnitOfWork;
+import ru.job4j.todo.repository.UserStore;
 import ru.job4j.todo.service.CategoryService;
 import ru.job4j.todo.service.PriorityService;
+import ru.job4j.todo.service.SimpleCategoryService;
+import ru.job4j.todo.service.SimplePriorityService;
+import ru.job4j.todo.service.SimpleTaskService;
 import ru.job4j.todo.service.TaskService;
 import ru.job4j.todo.util.Attribute;
+import ru.job4j.todo.util.Cursor;
 import ru.job4j.todo.util.Message;
 import ru.job4j.todo.util.Page;
+import ru.job4j.todo.util.TaskExport;
 
 import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static java.time.LocalDateTime.MIN;
 import static java.time.LocalDateTime.now;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 class TaskControllerTest {
     private TaskController taskController;
     private TaskService taskService;
+    private PriorityService priorityService;
+    private CategoryService categoryService;
     private User admin;
     private Priority urgently;
     private List<Task> tasks;
-    private List<Category> categories;
+    private List<TaskRow> rows;
+    private Set<Category> categories;
 
     @BeforeEach
     void setUp() {
         taskService = mock(TaskService.class);
-        PriorityService priorityService = mock(PriorityService.class);
-        CategoryService categoryService = mock(CategoryService.class);
+        priorityService = mock(PriorityService.class);
+        categoryService = mock(CategoryService.class);
         taskController = new TaskController(taskService, priorityService, categoryService);
 
         var oldDate = LocalDateTime.of(
                 LocalDate.of(MIN.getYear(), 1, 1),
                 LocalTime.of(0, 0, 0));
 
-        admin = new User(1, "admin", "admin", "123456", "UTC");
+        admin = new User(1, "admin", "admin", "123456", "UTC", false);
 
-        categories = new ArrayList<>();
+        categories = new LinkedHashSet<>();
         categories.add(new Category(1, "Job"));
         categories.add(new Category(2, "Hobby"));
         categories.add(new Category(3, "Sport"));
@@ -68,6 +100,13 @@ class TaskControllerTest {
         tasks.add(new Task(1, "task1", oldDate, false, admin, urgently, categories));
         tasks.add(new Task(2, "task2", now(), true, admin, normal, categories));
         tasks.add(new Task(3, "task3", now(), false, admin, urgently, categories));
+
+        rows = tasks.stream()
+                .map(task -> new TaskRow(task.getId(), task.getDescription(),
+                        categories.stream().map(Category::getName).toList(),
+                        task.getCreated(), task.isDone(),
+                        task.getPriority().getName(), task.getUser().getLogin()))
+                .toList();
     }
 
     /**
@@ -76,17 +115,111 @@ class TaskControllerTest {
      */
     @Test
     void whenRequestTaskListPageThenGetPageWithTasksOrderedByIdAsc() {
-        var expectedTasks = tasks;
+        var expectedTasks = rows;
         var request = mock(HttpServletRequest.class);
         when(request.getAttribute("user")).thenReturn(admin);
-        when(taskService.findAll()).thenReturn(expectedTasks);
+        when(taskService.findAll(0, 20)).thenReturn(new Slice<>(expectedTasks, 3, false));
 
         var model = new ConcurrentModel();
-        var view = taskController.getAll(model, request);
+        var view = taskController.getAll(null, "all", false, new TaskFilterForm(), model, request);
         var actualTasks = model.getAttribute("tasks");
 
         assertThat(view).isEqualTo("tasks/list");
         assertThat(actualTasks).isEqualTo(expectedTasks);
+        assertThat(model.getAttribute(Attribute.NEXT_CURSOR)).isNull();
+        assertThat(model.getAttribute(Attribute.TOTAL)).isNull();
+    }
+
+    /**
+     * Mock test getAll().
+     * Get next page token when more tasks exist after the page and the requested total.
+     */
+    @Test
+    void whenRequestTaskListPageWithCursorThenGetNextCursorAndTotal() {
+        var expectedTasks = List.of(rows.get(1));
+        var request = mock(HttpServletRequest.class);
+        when(request.getAttribute("user")).thenReturn(admin);
+        when(taskService.findAll(1, 20)).thenReturn(new Slice<>(expectedTasks, 2, true));
+        when(taskService.count(any(TaskFilter.class))).thenReturn(3L);
+
+        var model = new ConcurrentModel();
+        var view = taskController.getAll(Cursor.encode(1), "all", true, new TaskFilterForm(),
+                model, request);
+
+        assertThat(view).isEqualTo("tasks/list");
+        assertThat(model.getAttribute("tasks")).isEqualTo(expectedTasks);
+        assertThat(model.getAttribute(Attribute.NEXT_CURSOR)).isEqualTo(Cursor.encode(2));
+        assertThat(model.getAttribute(Attribute.TOTAL)).isEqualTo(3L);
+    }
+
+    /**
+     * Mock test getAll().
+     * "mine" view lists only tasks of current user and keeps view for next page.
+     */
+    @Test
+    void whenRequestMineViewThenGetTasksOfCurrentUser() {
+        var request = mock(HttpServletRequest.class);
+        when(request.getAttribute("user")).thenReturn(admin);
+        when(taskService.findAllByUser(admin.getId(), 0, 20))
+                .thenReturn(new Slice<>(rows, 3, true));
+
+        var model = new ConcurrentModel();
+        var view = taskController.getAll(null, "mine", false, new TaskFilterForm(), model, request);
+
+        assertThat(view).isEqualTo("tasks/list");
+        assertThat(model.getAttribute("tasks")).isEqualTo(rows);
+        assertThat(model.getAttribute(Attribute.VIEW)).isEqualTo("mine");
+        verify(taskService, never()).findAll(anyInt(), anyInt());
+    }
+
+    /**
+     * Mock test getAll().
+     * Filter form is converted into typed filter of current user with UTC dates,
+     * sort key is carried by cursor both ways.
+     */
+    @Test
+    void whenRequestFilteredTaskListThenFindByFilterWithSortKeyInCursor() {
+        var user = new User(1, "name", "login", "password", "Europe/Moscow", false);
+        var request = mock(HttpServletRequest.class);
+        when(request.getAttribute("user")).thenReturn(user);
+        var form = new TaskFilterForm();
+        form.setPriority(List.of(1, 2));
+        form.setFrom(LocalDate.of(2024, 3, 1));
+        form.setQ("milk");
+        form.setSort(TaskSort.PRIORITY);
+        var expected = TaskFilter.builder().priorityIds(Set.of(1, 2))
+                .createdFrom(LocalDateTime.of(2024, 2, 29, 21, 0)).userId(1).text("milk")
+                .sort(TaskSort.PRIORITY).build();
+        when(taskService.findByFilter(expected, "2", 7, 20))
+                .thenReturn(new Slice<>(rows, 9, true, "3"));
+
+        var model = new ConcurrentModel();
+        var view = taskController.getAll(Cursor.encode("2", 7), "mine", false, form,
+                model, request);
+
+        assertThat(view).isEqualTo("tasks/list");
+        assertThat(model.getAttribute("tasks")).asList().hasSameSizeAs(rows);
+        assertThat(model.getAttribute(Attribute.NEXT_CURSOR)).isEqualTo(Cursor.encode("3", 9));
+        verify(taskService, never()).findAllByUser(anyInt(), anyInt(), anyInt());
+    }
+
+    /**
+     * Mock test search().
+     * Found tasks are listed with query and number of the next page.
+     */
+    @Test
+    void whenSearchThenGetFoundTasksAndNextPage() {
+        var request = mock(HttpServletRequest.class);
+        when(request.getAttribute("user")).thenReturn(admin);
+        when(taskService.search("task", 1, 20)).thenReturn(new Slice<>(rows, 3, true));
+
+        var model = new ConcurrentModel();
+        var view = taskController.search("task", 1, model, request);
+
+        assertThat(view).isEqualTo(Page.TASKS_SEARCH);
+        assertThat(model.getAttribute(Attribute.TASKS)).isEqualTo(rows);
+        assertThat(model.getAttribute(Attribute.QUERY)).isEqualTo("task");
+        assertThat(model.getAttribute(Attribute.NEXT_PAGE)).isEqualTo(2);
     }
 
     /**
@@ -95,38 +228,242 @@ class TaskControllerTest {
      */
     @Test
     void whenRequestCompletedTaskListThenGetPageWithTasksOrderedByIdAsc() {
-        var expectedTasks = List.of(tasks.get(1));
+        var expectedTasks = List.of(rows.get(1));
         var request = mock(HttpServletRequest.class);
         when(request.getAttribute("user")).thenReturn(admin);
-        when(taskService.findAllCompleted(true)).thenReturn(expectedTasks);
+        when(taskService.findAllCompleted(true, 0, 20))
+                .thenReturn(new Slice<>(expectedTasks, 2, false));
 
         var model = new ConcurrentModel();
-        var view = taskController.getCompleted(model, request);
+        var view = taskController.getCompleted(null, "all", false, false, model, request);
         var actualTasks = model.getAttribute("tasks");
 
         assertThat(view).isEqualTo("tasks/completed");
         assertThat(actualTasks).isEqualTo(expectedTasks);
     }
 
+    /**
+     * Mock-test getCompleted() over archive.
+     * Get page of archived tasks, next page stays in archive.
+     */
+    @Test
+    void whenRequestArchivedTaskListThenGetPageFromArchive() {
+        var expectedTasks = List.of(rows.get(1));
+        var request = mock(HttpServletRequest.class);
+        when(request.getAttribute("user")).thenReturn(admin);
+        when(taskService.findArchived(0, 20)).thenReturn(new Slice<>(expectedTasks, 2, true));
+
+        var model = new ConcurrentModel();
+        var view = taskController.getCompleted(null, "all", true, false, model, request);
+
+        assertThat(view).isEqualTo("tasks/completed");
+        assertThat(model.getAttribute("tasks")).isEqualTo(expectedTasks);
+        assertThat(model.getAttribute("archive")).isEqualTo(true);
+        assertThat(model.getAttribute("nextCursor")).isNotNull();
+        verify(taskService, never()).findAllCompleted(anyBoolean(), anyInt(), anyInt());
+    }
+
     /**
      * Mock-test getNew().
      * Get list of all persisted new Tasks Ordered by ID.
      */
     @Test
     void whenRequestNewTaskListThenGetPageWithNewTasksOrderedByIdAsc() {
-        var expectedTasks = List.of(tasks.get(1), tasks.get(2));
+        var expectedTasks = List.of(rows.get(1), rows.get(2));
         var request = mock(HttpServletRequest.class);
         when(request.getAttribute("user")).thenReturn(admin);
-        when(taskService.findAllNew()).thenReturn(expectedTasks);
+        when(taskService.findAllNew(0, 20)).thenReturn(new Slice<>(expectedTasks, 3, false));
 
         var model = new ConcurrentModel();
-        var view = taskController.getNew(model, request);
+        var view = taskController.getNew(null, "all", false, model, request);
         var actualTasks = model.getAttribute("tasks");
 
         assertThat(view).isEqualTo("tasks/new");
         assertThat(actualTasks).isEqualTo(expectedTasks);
     }
 
+    /**
+     * Mock-test exportCsv().
+     * Get header line and one CSV line per task.
+     */
+    @Test
+    void whenExportCsvThenGetHeaderAndOneLinePerTask() throws Exception {
+        var response = new MockHttpServletResponse();
+        doAnswer(invocation -> {
+            Consumer<TaskRow> consumer = invocation.getArgument(0);
+            rows.forEach(consumer);
+            return (long) rows.size();
+        }).when(taskService).export(any());
+
+        taskController.exportCsv(response);
+        var lines = response.getContentAsString().lines().toList();
+
+        assertThat(response.getContentType()).startsWith("text/csv");
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0)).isEqualTo(TaskExport.CSV_HEADER);
+        assertThat(lines.get(1)).startsWith("1,task1,Job;Hobby;Sport,");
+    }
+
+    /**
+     * Mock-test exportCsv().
+     * Export failure after some rows propagates instead of completing the file.
+     */
+    @Test
+    void whenExportFailsThenThrowAndNoTruncatedFile() {
+        var response = new MockHttpServletResponse();
+        doAnswer(invocation -> {
+            Consumer<TaskRow> consumer = invocation.getArgument(0);
+            consumer.accept(rows.get(0));
+            throw new IllegalStateException("Tasks not exported");
+        }).when(taskService).export(any());
+
+        assertThatThrownBy(() -> taskController.exportCsv(response))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(response.isCommitted()).isFalse();
+    }
+
+    /**
+     * Mock-test importCsv().
+     * Exported CSV is imported back: quoted fields, priorities and categories
+     * are resolved by name and tasks belong to current user.
+     */
+    @Test
+    void whenImportExportedCsvThenSaveTasksOfCurrentUser() throws Exception {
+        var csv = TaskExport.CSV_HEADER + "\n"
+                + TaskExport.toCsv(rows.get(0)) + "\n"
+                + TaskExport.toCsv(rows.get(1).withCategoryNames(List.of("Hobby")))
+                        .replace("task2", "\"task, \"\"two\"\"\nline\"") + "\n";
+        var file = new MockMultipartFile("file", "tasks.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        var request = mock(HttpServletRequest.class);
+        when(request.getAttribute("user")).thenReturn(admin);
+        when(priorityService.findAll()).thenReturn(List.of(urgently, tasks.get(1).getPriority()));
+        when(categoryService.findAll()).thenReturn(new ArrayList<>(categories));
+        when(taskService.saveAll(any())).thenAnswer(invocation -> {
+            List<Task> saved = invocation.getArgument(0);
+            return saved.size();
+        });
+        var captor = ArgumentCaptor.forClass(List.class);
+
+        var view = taskController.importCsv(file, new ConcurrentModel(), request);
+
+        verify(taskService).saveAll(captor.capture());
+        List<Task> imported = captor.getValue();
+        assertThat(view).isEqualTo(Page.REDIRECT_TASKS);
+        assertThat(imported).hasSize(2);
+        assertThat(imported.get(0).getCategories()).isEqualTo(categories);
+        assertThat(imported.get(0).getPriority()).isEqualTo(urgently);
+        assertThat(imported.get(1).getDescription()).isEqualTo("task, \"two\"\nline");
+        assertThat(imported.get(1).isDone()).isTrue();
+        assertThat(imported.get(1).getCategories()).extracting(Category::getName)
+                .containsExactly("Hobby");
+        assertThat(imported).allMatch(task -> task.getId() == 0 && admin.equals(task.getUser()));
+    }
+
+    /**
+     * Mock-test importCsv().
+     * Malformed file leads to error page, nothing saved.
+     */
+    @Test
+    void whenImportMalformedCsvThenGetErrorPage() {
+        var file = new MockMultipartFile("file", "tasks.csv", "text/csv",
+                "header\n1,\"unterminated".getBytes(StandardCharsets.UTF_8));
+        var model = new ConcurrentModel();
+
+        var view = taskController.importCsv(file, model, mock(HttpServletRequest.class));
+
+        assertThat(view).isEqualTo(Page.ERRORS_404);
+        assertThat(model.getAttribute(Attribute.MESSAGE)).isEqualTo(Message.TASKS_NOT_IMPORTED);
+        verify(taskService, never()).saveAll(any());
+    }
+
+    /**
+     * Mock-test importCsv().
+     * Unknown priority or category fails the whole file with error per line,
+     * valid lines are not saved either.
+     */
+    @Test
+    void whenImportUnknownPriorityThenGetErrorPerLineAndNothingSaved() {
+        var csv = TaskExport.CSV_HEADER + "\n"
+                + TaskExport.toCsv(rows.get(0)) + "\n"
+                + TaskExport.toCsv(rows.get(1)).replace("task2", "\"two\nlines\"") + "\n"
+                + TaskExport.toCsv(rows.get(2).withCategoryNames(List.of("Hobby")))
+                        .replace(rows.get(2).priority(), "Someday") + "\n"
+                + TaskExport.toCsv(rows.get(0).withCategoryNames(List.of("Chores"))) + "\n";
+        var file = new MockMultipartFile("file", "tasks.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        var request = mock(HttpServletRequest.class);
+        when(request.getAttribute("user")).thenReturn(admin);
+        when(priorityService.findAll()).thenReturn(List.of(urgently, tasks.get(1).getPriority()));
+        when(categoryService.findAll()).thenReturn(new ArrayList<>(categories));
+        var model = new ConcurrentModel();
+
+        var view = taskController.importCsv(file, model, request);
+
+        assertThat(view).isEqualTo(Page.ERRORS_404);
+        assertThat(model.getAttribute(Attribute.MESSAGE)).isEqualTo(Message.TASKS_NOT_IMPORTED);
+        assertThat(model.getAttribute(Attribute.ERRORS)).isEqualTo(List.of(
+                "Line 5: unknown priority \"Someday\"",
+                "Line 6: unknown category \"Chores\""));
+        verify(taskService, never()).saveAll(any());
+    }
+
+    /**
+     * Mock-test deleteAll().
+     * Delete selected tasks of current user and report number of deleted tasks.
+     */
+    @Test
+    void whenDeleteSelectedThenRedirectWithNumberOfDeleted() {
+        var ids = List.of(1, 3);
+        var attributes = new RedirectAttributesModelMap();
+        var request = mock(HttpServletRequest.class);
+        when(request.getAttribute("user")).thenReturn(admin);
+        when(taskService.delete(ids, admin.getId())).thenReturn(2);
+
+        var view = taskController.deleteAll(ids, attributes, request);
+
+        assertThat(view).isEqualTo(Page.REDIRECT_TASKS);
+        assertThat(attributes.getFlashAttributes().get(Attribute.AFFECTED))
+                .isEqualTo(String.format(Message.TASKS_DELETED, 2));
+    }
+
+    /**
+     * Mock-test updateStatusAll().
+     * Nothing selected: nothing updated, zero reported.
+     */
+    @Test
+    void whenCompleteNothingSelectedThenZeroCompleted() {
+        var attributes = new RedirectAttributesModelMap();
+
+        var view = taskController.updateStatusAll(null, attributes,
+                mock(HttpServletRequest.class));
+
+        assertThat(view).isEqualTo(Page.REDIRECT_TASKS);
+        assertThat(attributes.getFlashAttributes().get(Attribute.AFFECTED))
+                .isEqualTo(String.format(Message.TASKS_COMPLETED, 0));
+        verify(taskService, never()).updateStatus(anyCollection(), anyInt());
+    }
+
+    /**
+     * Mock-test exportNdjson().
+     * Get one JSON object per line.
+     */
+    @Test
+    void whenExportNdjsonThenGetOneJsonObjectPerLine() throws Exception {
+        var response = new MockHttpServletResponse();
+        doAnswer(invocation -> {
+            Consumer<TaskRow> consumer = invocation.getArgument(0);
+            rows.forEach(consumer);
+            return (long) rows.size();
+        }).when(taskService).export(any());
+
+        taskController.exportNdjson(response);
+        var lines = response.getContentAsString().lines().toList();
+
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(2)).startsWith("{\"id\":3,\"description\":\"task3\"");
+    }
+
     /**
      * Mock-test getCreationPage().
      * Get new Task creation page.
@@ -280,7 +617,7 @@ class TaskControllerTest {
         updatedTask.setDescription("desc UPDATED");
         var taskArgumentCaptor = ArgumentCaptor.forClass(Task.class);
         when(request.getParameterValues(any())).thenReturn(new String[]{"1", "2", "3"});
-        when(taskService.update(taskArgumentCaptor.capture())).thenReturn(true);
+        when(taskService.update(taskArgumentCaptor.capture())).thenReturn(TaskPatch.Result.PATCHED);
 
         var model = new ConcurrentModel();
         var view = taskController.update(updatedTask, model, request);
@@ -300,7 +637,8 @@ class TaskControllerTest {
         var request = mock(HttpServletRequest.class);
         var taskArgumentCaptor = ArgumentCaptor.forClass(Task.class);
         when(request.getParameterValues(any())).thenReturn(new String[]{"1", "2", "3"});
-        when(taskService.update(taskArgumentCaptor.capture())).thenReturn(false);
+        when(taskService.update(taskArgumentCaptor.capture()))
+                .thenReturn(TaskPatch.Result.NOT_FOUND);
 
         var model = new ConcurrentModel();
         var view = taskController.update(new Task(), model, request);
@@ -310,6 +648,69 @@ class TaskControllerTest {
         assertThat(actualErrorMessage).isEqualTo(expectedErrorMessage);
     }
 
+    /**
+     * Mock-test update().
+     * Get edit page of current task with conflict message if form is stale.
+     */
+    @Test
+    void whenUpdateStaleTaskThenGetEditPageWithConflictMessage() {
+        var current = tasks.get(0);
+        var request = mock(HttpServletRequest.class);
+        when(request.getParameterValues(any())).thenReturn(new String[]{"1"});
+        when(taskService.update(any(Task.class))).thenReturn(TaskPatch.Result.CONFLICT);
+        when(taskService.findById(current.getId())).thenReturn(Optional.of(current));
+
+        var model = new ConcurrentModel();
+        var view = taskController.update(
+                new Task(current.getId(), "stale", current.getCreated(), false,
+                        admin, urgently, new LinkedHashSet<>()), model, request);
+
+        assertThat(view).isEqualTo(Page.TASKS_EDIT);
+        assertThat(model.getAttribute(Attribute.MESSAGE))
+                .isEqualTo(Message.TASK_VERSION_CONFLICT);
+        assertThat(model.getAttribute(Attribute.TASK)).isSameAs(current);
+    }
+
+    /**
+     * Mock-test patch().
+     * Patch gets new version, stale version gets 409, patch without version 400.
+     */
+    @Test
+    void whenPatchTaskThenGetStatusByResult() {
+        var patch = new TaskPatch(3, "desc PATCHED", null, null, null);
+        var stale = new TaskPatch(2, null, true, null, null);
+        when(taskService.patch(1, patch)).thenReturn(TaskPatch.Result.PATCHED);
+        when(taskService.patch(1, stale)).thenReturn(TaskPatch.Result.CONFLICT);
+
+        var patched = taskController.patch(1, patch);
+        var conflict = taskController.patch(1, stale);
+        var invalid = taskController.patch(1, new TaskPatch(null, "desc", null, null, null));
+
+        assertThat(patched.getStatusCodeValue()).isEqualTo(200);
+        assertThat(patched.getBody()).containsEntry(Attribute.VERSION, 4);
+        assertThat(conflict.getStatusCodeValue()).isEqualTo(409);
+        assertThat(conflict.getBody())
+                .containsEntry(Attribute.MESSAGE, Message.TASK_VERSION_CONFLICT);
+        assertThat(invalid.getStatusCodeValue()).isEqualTo(400);
+        verify(taskService, times(2)).patch(anyInt(), any());
+    }
+
+    /**
+     * Mock-test patch().
+     * Patch with unknown category ID gets 400 and is not applied.
+     */
+    @Test
+    void whenPatchUnknownCategoryThenGetBadRequest() {
+        when(categoryService.findAll()).thenReturn(new ArrayList<>(categories));
+
+        var unknown = taskController.patch(1, new TaskPatch(3, null, null, null, List.of(1, 99)));
+
+        assertThat(unknown.getStatusCodeValue()).isEqualTo(400);
+        assertThat(unknown.getBody())
+                .containsEntry(Attribute.MESSAGE, Message.TASK_CATEGORY_UNKNOWN);
+        verify(taskService, never()).patch(anyInt(), any());
+    }
+
     /**
      * Mock-test updateStatus().
      * Get tasks page upon successful status update of Task.
@@ -345,4 +746,139 @@ class TaskControllerTest {
         assertThat(actualErrorMessage).isEqualTo(expectedErrorMessage);
     }
 
+    /**
+     * Statement budget of /tasks, /tasks/{id} and /tasks/edit/{id}
+     * measured with real stores on test DB. /tasks is measured with reference
+     * lists of its filter form already cached by the edit page.
+     */
+    @Test
+    void whenRequestTaskPagesThenStayWithinQueryBudget() {
+        var registry = new StandardServiceRegistryBuilder().configure().build();
+        try (var sf = new MetadataSources(registry).buildMetadata().buildSessionFactory()) {
+            var crudRepository = new CrudRepository(sf);
+            var taskStore = new TaskStore(crudRepository);
+            var controller = new TaskController(
+                    new SimpleTaskService(taskStore),
+                    new SimplePriorityService(new PriorityStore(crudRepository), 600),
+                    new SimpleCategoryService(new CategoryStore(crudRepository), 600));
+            var owner = new UserStore(crudRepository).findAll().get(0);
+            var saved = new Task();
+            saved.setDescription("budget");
+            saved.setUser(owner);
+            saved.setPriority(new PriorityStore(crudRepository).findAll().get(0));
+            saved.setCategories(new LinkedHashSet<>(new CategoryStore(crudRepository).findAll()));
+            taskStore.save(saved);
+            var request = mock(HttpServletRequest.class);
+            when(request.getAttribute("user")).thenReturn(owner);
+
+            var statistics = RequestStatistics.start();
+            controller.getById(saved.getId(), new ConcurrentModel(), request);
+            var oneStatements = statistics.getStatements();
+            statistics = RequestStatistics.start();
+            controller.getEditPage(saved.getId(), new ConcurrentModel());
+            var coldEditStatements = statistics.getStatements();
+            statistics = RequestStatistics.start();
+            controller.getAll(null, "all", false, new TaskFilterForm(),
+                    new ConcurrentModel(), request);
+            var listStatements = statistics.getStatements();
+            statistics = RequestStatistics.start();
+            controller.getEditPage(saved.getId(), new ConcurrentModel());
+            var editStatements = statistics.getStatements();
+            statistics = RequestStatistics.start();
+            controller.getCreationPage(new ConcurrentModel());
+            var createStatements = statistics.getStatements();
+            RequestStatistics.stop();
+            taskStore.delete(saved.getId());
+
+            assertThat(listStatements).isLessThanOrEqualTo(2);
+            assertThat(oneStatements).isLessThanOrEqualTo(1);
+            assertThat(coldEditStatements).isLessThanOrEqualTo(3);
+            assertThat(editStatements).isLessThanOrEqualTo(1);
+            assertThat(createStatements).isZero();
+        } finally {
+            RequestStatistics.stop();
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+    }
+
+    /**
+     * Cold edit page reads task, priorities and categories by three commands.
+     * In unit of work they share one connection and transaction instead
+     * of taking three, with the same statements.
+     */
+    @Test
+    void whenEditPageInUnitOfWorkThenOneConnectionPerRequest() {
+        var registry = new StandardServiceRegistryBuilder().configure().build();
+        try (var sf = new MetadataSources(registry).buildMetadata().buildSessionFactory()) {
+            var crudRepository = new CrudRepository(sf);
+            var saved = new Task();
+            saved.setDescription("unit of work");
+            saved.setUser(new UserStore(crudRepository).findAll().get(0));
+            saved.setPriority(new PriorityStore(crudRepository).findAll().get(0));
+            saved.setCategories(new LinkedHashSet<>(new CategoryStore(crudRepository).findAll()));
+            new TaskStore(crudRepository).save(saved);
+            var separate = new ArrayList<Long>();
+            var shared = new ArrayList<Long>();
+            var factoryStatistics = sf.getStatistics();
+            RequestStatistics separateStatistics = null;
+            RequestStatistics sharedStatistics = null;
+            var separateConnects = 0L;
+            var sharedConnects = 0L;
+            for (int i = 0; i < 200; i++) {
+                var before = factoryStatistics.getConnectCount();
+                separateStatistics = coldEditPage(sf, crudRepository, saved.getId(), false,
+                        separate);
+                separateConnects = factoryStatistics.getConnectCount() - before;
+                before = factoryStatistics.getConnectCount();
+                sharedStatistics = coldEditPage(sf, crudRepository, saved.getId(), true, shared);
+                sharedConnects = factoryStatistics.getConnectCount() - before;
+            }
+            new TaskStore(crudRepository).delete(saved.getId());
+            System.out.printf("cold edit page p99: separate %.2f ms, unit of work %.2f ms%n",
+                    p99(separate) / 1e6, p99(shared) / 1e6);
+
+            assertThat(separateStatistics.getConnections()).isEqualTo(3);
+            assertThat(separateConnects).isEqualTo(3);
+            assertThat(separateStatistics.getTransactions()).isEqualTo(3);
+            assertThat(sharedStatistics.getConnections()).isEqualTo(1);
+            assertThat(sharedConnects).isEqualTo(1);
+            assertThat(sharedStatistics.getTransactions()).isEqualTo(1);
+            assertThat(sharedStatistics.getStatements())
+                    .isEqualTo(separateStatistics.getStatements());
+        } finally {
+            RequestStatistics.stop();
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+    }
+
+    /**
+     * Edit page with task and reference caches empty.
+     */
+    private static RequestStatistics coldEditPage(SessionFactory sf, CrudRepository repository,
+                                                  int id, boolean unitOfWork,
+                                                  List<Long> latencies) {
+        var controller = new TaskController(
+                new SimpleTaskService(new TaskStore(repository)),
+                new SimplePriorityService(new PriorityStore(repository), 0),
+                new SimpleCategoryService(new CategoryStore(repository), 0));
+        sf.getCache().evictAllRegions();
+        var statistics = RequestStatistics.start();
+        var start = System.nanoTime();
+        if (unitOfWork) {
+            try (var unit = UnitOfWork.begin()) {
+                controller.getEditPage(id, new ConcurrentModel());
+            }
+        } else {
+            controller.getEditPage(id, new ConcurrentModel());
+        }
+        latencies.add(System.nanoTime() - start);
+        RequestStatistics.stop();
+        return statistics;
+    }
+
+    private static long p99(List<Long> latencies) {
+        var sorted = latencies.stream().sorted().toList();
+        return sorted.get(sorted.size() * 99 / 100);
+    }
+
 }
\ No newline at end of file
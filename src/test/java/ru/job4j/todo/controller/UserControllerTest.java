@@ -4,24 +4,32 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.springframework.ui.ConcurrentModel;
+import org.springframework.http.HttpStatus;
 import ru.job4j.todo.model.User;
+import ru.job4j.todo.service.UserPurgeService;
 import ru.job4j.todo.service.UserService;
 import ru.job4j.todo.util.Attribute;
 import ru.job4j.todo.util.Message;
 import ru.job4j.todo.util.Page;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class UserControllerTest {
     private UserController userController;
     private UserService userService;
+    private UserPurgeService purgeService;
     private List<User> users;
 
     /**
@@ -30,12 +38,13 @@ class UserControllerTest {
     @BeforeEach
     void setUp() {
         userService = mock(UserService.class);
-        userController = new UserController(userService);
+        purgeService = mock(UserPurgeService.class);
+        userController = new UserController(userService, purgeService);
         users = List.of(
-                new User(1, "name1", "login1", "123456", "UTC"),
-                new User(2, "name2", "login2", "123456", "UTC"),
-                new User(3, "name3", "login3", "123456", "UTC"),
-                new User(4, "name4", "login4", "123456", "UTC"));
+                new User(1, "name1", "login1", "123456", "UTC", false),
+                new User(2, "name2", "login2", "123456", "UTC", false),
+                new User(3, "name3", "login3", "123456", "UTC", false),
+                new User(4, "name4", "login4", "123456", "UTC", false));
     }
 
     /**
@@ -77,7 +86,7 @@ class UserControllerTest {
     @Test
     void whenAddNewUserWithNotUniqueLoginThenErrorPageWithMessage() {
         var expectedErrorMessage = Message.NOT_UNIQUE_LOGIN;
-        var user = new User(0, "name111", "login1", "123456", "UTC");
+        var user = new User(0, "name111", "login1", "123456", "UTC", false);
         when(userService.save(user)).thenReturn(Optional.empty());
 
         var model = new ConcurrentModel();
@@ -126,7 +135,7 @@ class UserControllerTest {
     @Test
     public void whenRequestToLoginWithInCorrectDataThenErrorPageWithMessage() {
         var expectedErrorMessage = Message.LOGIN_PASSWORD_INCORRECT;
-        var user = new User(0, "name", "login", "password", "UTC");
+        var user = new User(0, "name", "login", "password", "UTC", false);
         var session = mock(HttpSession.class);
         when(userService.findByLoginAndPassword(any(String.class), any(String.class)))
                 .thenReturn(Optional.empty());
@@ -151,4 +160,69 @@ class UserControllerTest {
 
         assertThat(view).isEqualTo(Page.REDIRECT_USERS_LOGIN);
     }
-}
\ No newline at end of file
+
+    /**
+     * Mock-test purge().
+     * User who is not administrator can not purge another user.
+     */
+    @Test
+    void whenPurgeAnotherUserNotAsAdminThenForbidden() {
+        var request = mock(HttpServletRequest.class);
+        when(request.getAttribute(Attribute.USER)).thenReturn(users.get(0));
+        var session = mock(HttpSession.class);
+
+        var response = userController.purge(users.get(1).getLogin(), request, session);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(response.getBody()).containsEntry(Attribute.MESSAGE, Message.PURGE_FORBIDDEN);
+        verify(purgeService, never()).purge(any());
+        verify(session, never()).invalidate();
+    }
+
+    /**
+     * Mock-test purge().
+     * User purges themselves and gets logged out, administrator purges anyone.
+     */
+    @Test
+    void whenPurgeSelfOrAsAdminThenRegistered() {
+        var admin = new User(5, "admin", "admin", "123456", "UTC", true);
+        var request = mock(HttpServletRequest.class);
+        var session = mock(HttpSession.class);
+        when(purgeService.purge(any())).thenReturn(true);
+        when(purgeService.metrics()).thenReturn(Map.of("unfinished", 1));
+
+        when(request.getAttribute(Attribute.USER)).thenReturn(users.get(0));
+        var self = userController.purge(users.get(0).getLogin(), request, session);
+        verify(session).invalidate();
+        when(request.getAttribute(Attribute.USER)).thenReturn(admin);
+        var other = userController.purge(users.get(1).getLogin(), request, session);
+
+        assertThat(self.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(self.getBody()).containsEntry(Attribute.REGISTERED, true)
+                .containsEntry("unfinished", 1);
+        assertThat(other.getStatusCode()).isEqualTo(HttpStatus.OK);
+        verify(purgeService).purge(users.get(0).getLogin());
+        verify(purgeService).purge(users.get(1).getLogin());
+        verify(session, times(1)).invalidate();
+    }
+
+    /**
+     * Mock-test purge().
+     * Administrator can not purge themselves, so login admin is never free.
+     */
+    @Test
+    void whenAdminPurgesSelfThenForbidden() {
+        var admin = new User(5, "admin", "admin", "123456", "UTC", true);
+        var request = mock(HttpServletRequest.class);
+        when(request.getAttribute(Attribute.USER)).thenReturn(admin);
+        var session = mock(HttpSession.class);
+
+        var response = userController.purge(admin.getLogin(), request, session);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(response.getBody())
+                .containsEntry(Attribute.MESSAGE, Message.PURGE_ADMIN_FORBIDDEN);
+        verify(purgeService, never()).purge(any());
+        verify(session, never()).invalidate();
+    }
+}
@@ -0,0 +1,74 @@
+package ru.job4j.todo.filter;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryBudgetFilterTest {
+    private static QueryBudgetFilter filter;
+
+    /**
+     * Filter with budgets of application.properties parsed the same way as by @Value.
+     */
+    @BeforeAll
+    @SuppressWarnings("unchecked")
+    static void init() throws IOException {
+        var properties = PropertiesLoaderUtils.loadProperties(
+                new ClassPathResource("application.properties"));
+        var budgets = new SpelExpressionParser()
+                .parseExpression(properties.getProperty("query.budget.endpoints"))
+                .getValue(Map.class);
+        filter = new QueryBudgetFilter(budgets,
+                Integer.parseInt(properties.getProperty("query.budget.default")));
+    }
+
+    /**
+     * Task ID pattern matches numeric IDs only, other task endpoints get their own
+     * or default budget.
+     */
+    @Test
+    void whenBudgetOfTaskEndpointsThenIdPatternMatchesOnlyNumbers() {
+        assertThat(filter.budgetOf("/tasks")).isEqualTo(2);
+        assertThat(filter.budgetOf("/tasks/completed")).isEqualTo(2);
+        assertThat(filter.budgetOf("/tasks/42")).isEqualTo(1);
+        assertThat(filter.budgetOf("/tasks/edit/42")).isEqualTo(1);
+        assertThat(filter.budgetOf("/tasks/create")).isEqualTo(10);
+        assertThat(filter.budgetOf("/tasks/search")).isEqualTo(10);
+        assertThat(filter.budgetOf("/tasks/suggest")).isEqualTo(10);
+        assertThat(filter.budgetOf("/tasks/import")).isEqualTo(10);
+        assertThat(filter.budgetOf("/tasks/delete")).isEqualTo(10);
+        assertThat(filter.budgetOf("/tasks/complete")).isEqualTo(10);
+        assertThat(filter.budgetOf("/users/login")).isEqualTo(10);
+    }
+
+    /**
+     * Statistics header is set both on rendered body and on redirect.
+     */
+    @Test
+    void whenRequestThenStatisticsHeaderSet() throws Exception {
+        var rendered = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/tasks/42"), rendered,
+                (request, response) -> response.getWriter().write("task"));
+        var redirected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/tasks/delete"), redirected,
+                (request, response) -> ((HttpServletResponse) response)
+                        .sendRedirect("/tasks"));
+
+        assertThat(rendered.getHeader(QueryBudgetFilter.HEADER))
+                .isEqualTo("statements=0; connections=0; transactions=0;"
+                        + " rows=0; entities=0; tx-ms=0");
+        assertThat(rendered.getContentAsString()).isEqualTo("task");
+        assertThat(redirected.getHeader(QueryBudgetFilter.HEADER)).startsWith("statements=0;");
+        assertThat(redirected.getRedirectedUrl()).isEqualTo("/tasks");
+    }
+}
@@ -0,0 +1,28 @@
+package ru.job4j.todo.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UnitOfWorkFilterTest {
+    private final UnitOfWorkFilter filter = new UnitOfWorkFilter();
+
+    /**
+     * Only GET requests which do not write run in unit of work.
+     */
+    @Test
+    void whenGetWritesOrOtherMethodThenNotReading() {
+        assertThat(filter.isReading(get("/tasks"))).isTrue();
+        assertThat(filter.isReading(get("/tasks/42"))).isTrue();
+        assertThat(filter.isReading(get("/tasks/edit/42"))).isTrue();
+        assertThat(filter.isReading(get("/tasks/delete/42"))).isFalse();
+        assertThat(filter.isReading(get("/tasks/complete/42"))).isFalse();
+        assertThat(filter.isReading(new MockHttpServletRequest("POST", "/tasks/edit/42")))
+                .isFalse();
+    }
+
+    private static MockHttpServletRequest get(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+}
@@ -0,0 +1,34 @@
+package ru.job4j.todo.repository;
+
+import org.hibernate.engine.jdbc.connections.internal.DriverManagerConnectionProviderImpl;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Built-in Hibernate pool whose connections keep read-only flag set on them,
+ * as H2 ignores it, so tests can see the flag a pooled connection is handed out with.
+ */
+public class ReadOnlyTrackingConnectionProvider extends DriverManagerConnectionProviderImpl {
+    private static final Map<Connection, Boolean> READ_ONLY = new ConcurrentHashMap<>();
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        var connection = super.getConnection();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "setReadOnly" -> READ_ONLY.put(connection, (Boolean) args[0]);
+                    case "isReadOnly" -> READ_ONLY.getOrDefault(connection, false);
+                    default -> method.invoke(connection, args);
+                });
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        super.closeConnection(connection.unwrap(Connection.class));
+    }
+}
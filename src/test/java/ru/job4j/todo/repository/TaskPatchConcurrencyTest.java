@@ -0,0 +1,108 @@
+package ru.job4j.todo.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Test;
+import ru.job4j.todo.model.Task;
+import ru.job4j.todo.model.TaskPatch;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskPatchConcurrencyTest implements AutoCloseable {
+    private static final int THREADS = 8;
+    private static final int PATCHES = 50;
+    /**
+     * Every writer runs on its own connection.
+     */
+    private static final StandardServiceRegistry REGISTRY = new StandardServiceRegistryBuilder()
+            .configure().applySetting(AvailableSettings.POOL_SIZE, THREADS).build();
+    private static final SessionFactory SESSION_FACTORY = new MetadataSources(REGISTRY)
+            .buildMetadata().buildSessionFactory();
+    private static final CrudRepository CRUD_REPOSITORY = new CrudRepository(SESSION_FACTORY);
+    private static final TaskStore TASK_STORE = new TaskStore(CRUD_REPOSITORY);
+    private static final UserStore USER_STORE = new UserStore(CRUD_REPOSITORY);
+    private static final PriorityStore PRIORITY_STORE = new PriorityStore(CRUD_REPOSITORY);
+    private static final CategoryStore CATEGORY_STORE = new CategoryStore(CRUD_REPOSITORY);
+
+    /**
+     * Writers patch one task, each retrying on conflict with version read
+     * again. Every accepted patch increments version exactly once, so no
+     * write is lost, and rejected patches cost no lock wait.
+     */
+    @Test
+    void whenManyThreadsPatchOneTaskThenNoLostUpdates() throws Exception {
+        var task = new Task();
+        task.setDescription("contended");
+        task.setUser(USER_STORE.findAll().get(0));
+        task.setPriority(PRIORITY_STORE.findAll().get(0));
+        task.setCategories(new LinkedHashSet<>(CATEGORY_STORE.findAll().subList(0, 1)));
+        TASK_STORE.save(task);
+        var patched = new AtomicInteger();
+        var conflicts = new AtomicInteger();
+        var nanos = new AtomicLong();
+        var start = new CountDownLatch(1);
+        var pool = Executors.newFixedThreadPool(THREADS);
+        var writers = new ArrayList<Future<?>>();
+        for (int i = 0; i < THREADS; i++) {
+            var writer = i;
+            writers.add(pool.submit(() -> {
+                start.await();
+                for (int j = 0; j < PATCHES; j++) {
+                    var patch = new TaskPatch(version(task.getId()), "w" + writer + "p" + j,
+                            null, null, null);
+                    var begin = System.nanoTime();
+                    var result = TASK_STORE.patch(task.getId(), patch);
+                    nanos.addAndGet(System.nanoTime() - begin);
+                    if (result == TaskPatch.Result.PATCHED) {
+                        patched.incrementAndGet();
+                    } else {
+                        assertThat(result).isEqualTo(TaskPatch.Result.CONFLICT);
+                        conflicts.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        var begin = System.nanoTime();
+        start.countDown();
+        for (var writer : writers) {
+            writer.get();
+        }
+        var seconds = (System.nanoTime() - begin) / 1e9;
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.SECONDS);
+        var attempts = patched.get() + conflicts.get();
+        System.out.printf("patch: %d attempts, %.0f/s, %.1f%% conflicts, mean %.2f ms%n",
+                attempts, attempts / seconds, 100.0 * conflicts.get() / attempts,
+                nanos.get() / 1e6 / attempts);
+
+        assertThat(attempts).isEqualTo(THREADS * PATCHES);
+        assertThat(patched.get()).isPositive();
+        assertThat(version(task.getId())).isEqualTo(patched.get());
+        TASK_STORE.delete(task.getId());
+    }
+
+    private static int version(int id) {
+        return CRUD_REPOSITORY.readOnly(session -> session
+                .createQuery("SELECT t.version FROM Task t WHERE t.id = :id", Integer.class)
+                .setParameter("id", id)
+                .getSingleResult());
+    }
+
+    @Override
+    public void close() {
+        StandardServiceRegistryBuilder.destroy(REGISTRY);
+    }
+}
@@ -4,18 +4,34 @@ import org.hibernate.SessionFactory;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.job4j.todo.model.Category;
 import ru.job4j.todo.model.Priority;
 import ru.job4j.todo.model.Task;
+import ru.job4j.todo.model.TaskFilter;
+import ru.job4j.todo.model.TaskPatch;
+import ru.job4j.todo.model.TaskRow;
+import ru.job4j.todo.model.TaskSort;
+import ru.job4j.todo.model.TaskSuggestion;
 import ru.job4j.todo.model.User;
+import ru.job4j.todo.util.CategoryMask;
 
+import javax.persistence.PersistenceException;
+import java.sql.Connection;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class TaskStoreTest implements AutoCloseable {
     private static final StandardServiceRegistry REGISTRY = new StandardServiceRegistryBuilder()
@@ -48,12 +64,12 @@ class TaskStoreTest implements AutoCloseable {
         task.setDescription("desc1");
         task.setUser(admin);
         task.setPriority(veryHigh);
-        task.setCategories(List.of(home, sport));
+        task.setCategories(new LinkedHashSet<>(List.of(home, sport)));
     }
 
     @BeforeEach
     void clear() {
-        var tasks = TASK_STORE.findAll();
+        var tasks = all();
         for (var task : tasks) {
             TASK_STORE.delete(task.getId());
         }
@@ -68,7 +84,87 @@ class TaskStoreTest implements AutoCloseable {
 
         assertThat(taskOptional).isNotEmpty();
         assertThat(taskOptional.get()).isEqualTo(task);
-        assertThat(TASK_STORE.findAll()).isEqualTo(List.of(task));
+        assertThat(all()).isEqualTo(List.of(task));
+    }
+
+    /**
+     * Save all tasks in JDBC batches: far fewer statements than inserted rows.
+     */
+    @Test
+    void whenSaveAllThenAllSavedInBatches() {
+        var tasks = bulk(120);
+        var statistics = SESSION_FACTORY.getStatistics();
+        statistics.clear();
+
+        assertThat(TASK_STORE.saveAll(tasks)).isEqualTo(120);
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(30);
+        assertThat(tasks).extracting(Task::getId).doesNotHaveDuplicates().doesNotContainNull();
+        assertThat(all()).hasSize(120);
+        assertThat(TASK_STORE.getById(tasks.get(119).getId()).get().getCategories())
+                .containsExactlyInAnyOrder(hobby, friends);
+    }
+
+    /**
+     * Complete many tasks by ids in one statement and get number of updated tasks.
+     */
+    @Test
+    void whenUpdateStatusOfManyThenAllCompleted() {
+        var tasks = bulk(3);
+        TASK_STORE.saveAll(tasks);
+        var ids = List.of(tasks.get(0).getId(), tasks.get(2).getId(), -1);
+        var statistics = SESSION_FACTORY.getStatistics();
+        statistics.clear();
+
+        assertThat(TASK_STORE.updateStatus(ids, owner())).isEqualTo(2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(all()).filteredOn(Task::isDone)
+                .extracting(Task::getId).containsExactly(ids.get(0), ids.get(1));
+    }
+
+    /**
+     * Bulk complete and delete touch only tasks of the given user and report
+     * only the tasks they actually changed.
+     */
+    @Test
+    void whenBulkChangeTasksOfAnotherUserThenNotAffected() {
+        var stranger = new User(0, "stranger", "stranger", "password", "UTC", false);
+        USER_STORE.save(stranger);
+        var tasks = bulk(2);
+        tasks.get(1).setUser(stranger);
+        TASK_STORE.saveAll(tasks);
+        var ids = tasks.stream().map(Task::getId).toList();
+
+        var completed = TASK_STORE.updateStatus(ids, owner());
+        var deleted = TASK_STORE.delete(ids, owner());
+        var left = all();
+        TASK_STORE.delete(ids, stranger.getId());
+        USER_STORE.deleteByLogin(stranger.getLogin());
+
+        assertThat(completed).isEqualTo(1);
+        assertThat(deleted).isEqualTo(1);
+        assertThat(left).extracting(Task::getId).containsExactly(ids.get(1));
+        assertThat(left.get(0).isDone()).isFalse();
+    }
+
+    /**
+     * Delete many tasks with their categories, chunk by chunk, in one transaction.
+     */
+    @Test
+    void whenDeleteManyThenDeletedWithCategories() {
+        var tasks = bulk(600);
+        TASK_STORE.saveAll(tasks);
+        var ids = tasks.stream().map(Task::getId).toList();
+        var statistics = SESSION_FACTORY.getStatistics();
+        statistics.clear();
+
+        assertThat(TASK_STORE.delete(ids, owner())).isEqualTo(600);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(6);
+        assertThat(all()).isEmpty();
+        long links = CRUD_REPOSITORY.readOnly(session -> ((Number) session
+                .createNativeQuery("SELECT COUNT(*) FROM tasks_categories WHERE task_id IN (:ids)")
+                .setParameterList("ids", ids.subList(0, 10))
+                .getSingleResult()).longValue());
+        assertThat(links).isZero();
     }
 
     /**
@@ -81,11 +177,117 @@ class TaskStoreTest implements AutoCloseable {
         var updated = taskOptional.get();
         updated.setDescription("UPDATED");
         updated.setPriority(normal);
-        updated.setCategories(List.of(hobby, friends));
+        updated.setCategories(Set.of(hobby, friends));
+
+        assertThat(TASK_STORE.update(updated)).isEqualTo(TaskPatch.Result.PATCHED);
+        assertThat(all()).isEqualTo(List.of(updated));
+        assertThat(all().get(0)).isEqualTo(updated).usingRecursiveComparison();
+    }
+
+    /**
+     * Unchanged task is updated by one read and no writes, while merge reads
+     * task and categories apart. With warm cache one replaced category costs
+     * one changed column of tasks and one deleted and one inserted category row.
+     */
+    @Test
+    void whenUpdateThenOnlyChangesWritten() {
+        TASK_STORE.save(task);
+        SESSION_FACTORY.getCache().evictAllRegions();
+        var loaded = TASK_STORE.getById(task.getId()).orElseThrow();
+        var statistics = SESSION_FACTORY.getStatistics();
+        SESSION_FACTORY.getCache().evictAllRegions();
+        statistics.clear();
+        CRUD_REPOSITORY.run(session -> session.merge(submitted(loaded)));
+        var mergeStatements = statistics.getPrepareStatementCount();
+        var edited = submitted(loaded);
+        edited.setVersion(CRUD_REPOSITORY.readOnly(
+                session -> session.find(Task.class, task.getId()).getVersion()));
+
+        SESSION_FACTORY.getCache().evictAllRegions();
+        statistics.clear();
+        var unchanged = TASK_STORE.update(submitted(edited));
+        var unchangedStatements = statistics.getPrepareStatementCount();
+        var unchangedUpdates = statistics.getEntityUpdateCount()
+                + statistics.getCollectionUpdateCount() + statistics.getCollectionRecreateCount();
+
+        var changed = submitted(edited);
+        changed.getCategories().removeIf(category -> category.getId() != 1);
+        changed.getCategories().add(new Category(hobby.getId()));
+        CATEGORY_STORE.findAll();
+        statistics.clear();
+        TASK_STORE.update(changed);
+        var changedStatements = statistics.getPrepareStatementCount();
+        var stored = TASK_STORE.getById(task.getId()).orElseThrow();
+        var missing = submitted(edited);
+        missing.setId(-1);
+
+        assertThat(unchanged).isEqualTo(TaskPatch.Result.PATCHED);
+        assertThat(unchangedUpdates).isZero();
+        assertThat(unchangedStatements).isEqualTo(1);
+        assertThat(mergeStatements).isGreaterThan(unchangedStatements);
+        assertThat(changedStatements).isEqualTo(3);
+        assertThat(stored.getCategories()).extracting(Category::getId)
+                .containsExactly(1, hobby.getId());
+        assertThat(stored.getDescription()).isEqualTo(edited.getDescription());
+        assertThat(TASK_STORE.update(missing)).isEqualTo(TaskPatch.Result.NOT_FOUND);
+    }
+
+    /**
+     * Form update increments version, so form loaded before it is rejected
+     * as stale and task keeps the first change.
+     */
+    @Test
+    void whenUpdateWithStaleVersionThenConflictAndNotChanged() {
+        TASK_STORE.save(task);
+        var loaded = TASK_STORE.getById(task.getId()).orElseThrow();
+        var first = submitted(loaded);
+        first.setDescription("first");
+        var second = submitted(loaded);
+        second.setDescription("second");
+
+        var firstResult = TASK_STORE.update(first);
+        var secondResult = TASK_STORE.update(second);
+        var stored = TASK_STORE.getById(task.getId()).orElseThrow();
 
-        assertThat(TASK_STORE.update(updated)).isTrue();
-        assertThat(TASK_STORE.findAll()).isEqualTo(List.of(updated));
-        assertThat(TASK_STORE.findAll().get(0)).isEqualTo(updated).usingRecursiveComparison();
+        assertThat(firstResult).isEqualTo(TaskPatch.Result.PATCHED);
+        assertThat(secondResult).isEqualTo(TaskPatch.Result.CONFLICT);
+        assertThat(stored.getDescription()).isEqualTo("first");
+        assertThat(stored.getVersion()).isEqualTo(loaded.getVersion() + 1);
+    }
+
+    /**
+     * Patch changes only sent fields and increments version, so patch
+     * based on the previous version is rejected as stale.
+     */
+    @Test
+    void whenPatchThenOnlySentFieldsChangedAndStalePatchRejected() {
+        TASK_STORE.save(task);
+        var id = task.getId();
+        var description = new TaskPatch(0, "PATCHED", null, null, null);
+        var categories = new TaskPatch(1, null, null, normal.getId(),
+                List.of(hobby.getId(), friends.getId()));
+        var stale = new TaskPatch(1, null, true, null, null);
+
+        var patched = TASK_STORE.patch(id, description);
+        var recategorized = TASK_STORE.patch(id, categories);
+        var conflict = TASK_STORE.patch(id, stale);
+        var missing = TASK_STORE.patch(-1, stale);
+        var stored = TASK_STORE.getById(id).orElseThrow();
+
+        assertThat(List.of(patched, recategorized))
+                .containsOnly(TaskPatch.Result.PATCHED);
+        assertThat(conflict).isEqualTo(TaskPatch.Result.CONFLICT);
+        assertThat(missing).isEqualTo(TaskPatch.Result.NOT_FOUND);
+        assertThat(stored.getVersion()).isEqualTo(2);
+        assertThat(stored.getDescription()).isEqualTo("PATCHED");
+        assertThat(stored.isDone()).isFalse();
+        assertThat(stored.getPriority().getId()).isEqualTo(normal.getId());
+        assertThat(stored.getCategories()).extracting(Category::getId)
+                .containsExactly(hobby.getId(), friends.getId());
+        assertThat(stored.getCategoryMask())
+                .isEqualTo(CategoryMask.ofIds(List.of(hobby.getId(), friends.getId())));
+        assertThat(TASK_STORE.suggest("patch", 10)).extracting(TaskSuggestion::id)
+                .containsExactly(id);
     }
 
     /**
@@ -109,48 +311,542 @@ class TaskStoreTest implements AutoCloseable {
     @Test
     void whenFindAllThenGetListOfSavedTasks() {
         TASK_STORE.save(task);
-        assertThat(TASK_STORE.findAll()).isEqualTo(List.of(task));
+        assertThat(all()).isEqualTo(List.of(task));
     }
 
     /**
-     * Get list of all Tasks with "completed" status.
+     * Get page of Tasks with "completed" status.
      */
     @Test
     void whenListCompletedThenGetIt() {
         task.setDone(true);
         TASK_STORE.save(task);
-        assertThat(TASK_STORE.findAllCompleted(true)).isEqualTo(List.of(task));
+        assertThat(TASK_STORE.findAllCompleted(true, 0, 10).items())
+                .extracting(TaskRow::id).containsExactly(task.getId());
     }
 
     /**
-     * Get empty list if no Task completed.
+     * Get empty page if no Task completed.
      */
     @Test
     void whenListCompletedThenGetEmptyList() {
         task.setDone(false);
         TASK_STORE.save(task);
-        assertThat(TASK_STORE.findAllCompleted(true)).isEmpty();
+        assertThat(TASK_STORE.findAllCompleted(true, 0, 10).items()).isEmpty();
     }
 
     /**
-     * Get list of newly added Tasks.
+     * Get page of newly added Tasks.
      */
     @Test
     void whenFindNewThenListNewTasks() {
         task.setCreated(LocalDateTime.now());
         TASK_STORE.save(task);
-        assertThat(TASK_STORE.findAllNew()).isEqualTo(List.of(task));
+        assertThat(TASK_STORE.findAllNew(0, 10).items())
+                .extracting(TaskRow::id).containsExactly(task.getId());
+        assertThat(TASK_STORE.countNew(null)).isEqualTo(1);
     }
 
     /**
-     * Get empty list if no new Tasks.
+     * Get empty page if no new Tasks.
      */
     @Test
     void whenFindNewThenListEmptyList() {
         var created = LocalDateTime.now().withYear(2000);
         task.setCreated(created);
         TASK_STORE.save(task);
-        assertThat(TASK_STORE.findAllNew()).isEmpty();
+        assertThat(TASK_STORE.findAllNew(0, 10).items()).isEmpty();
+        assertThat(TASK_STORE.countNew(null)).isZero();
+    }
+
+    /**
+     * Page through saved Tasks by ID cursor.
+     */
+    @Test
+    void whenFindAllByCursorThenGetPagesInIdOrder() {
+        var tasks = new ArrayList<Task>();
+        for (int i = 0; i < 5; i++) {
+            var next = new Task();
+            next.setDescription("page" + i);
+            next.setUser(task.getUser());
+            next.setPriority(task.getPriority());
+            next.setCategories(new LinkedHashSet<>(task.getCategories()));
+            TASK_STORE.save(next);
+            tasks.add(next);
+        }
+
+        var ids = tasks.stream().map(Task::getId).toList();
+
+        var first = TASK_STORE.findAll(0, 2);
+        assertThat(first.items()).extracting(TaskRow::id).isEqualTo(ids.subList(0, 2));
+        assertThat(first.hasNext()).isTrue();
+        var second = TASK_STORE.findAll(first.lastId(), 2);
+        assertThat(second.items()).extracting(TaskRow::id).isEqualTo(ids.subList(2, 4));
+        assertThat(second.hasNext()).isTrue();
+        var last = TASK_STORE.findAll(second.lastId(), 2);
+        assertThat(last.items()).extracting(TaskRow::id).isEqualTo(ids.subList(4, 5));
+        assertThat(last.hasNext()).isFalse();
+        assertThat(TASK_STORE.findAll(last.lastId(), 2).items()).isEmpty();
+    }
+
+    /**
+     * Page through completed Tasks only.
+     */
+    @Test
+    void whenFindAllCompletedByCursorThenGetOnlyCompleted() {
+        task.setDone(true);
+        TASK_STORE.save(task);
+        var slice = TASK_STORE.findAllCompleted(true, 0, 10);
+        assertThat(slice.items()).extracting(TaskRow::id).containsExactly(task.getId());
+        assertThat(slice.hasNext()).isFalse();
+        assertThat(TASK_STORE.findAllCompleted(false, 0, 10).items()).isEmpty();
+    }
+
+    /**
+     * Read-only command checks out exactly one JDBC connection, and
+     * a write command afterwards still works on the pooled connection.
+     */
+    @Test
+    void whenReadOnlyThenOneConnection() {
+        TASK_STORE.save(task);
+        var statistics = SESSION_FACTORY.getStatistics();
+        SESSION_FACTORY.getCache().evictAllRegions();
+
+        statistics.clear();
+        var found = CRUD_REPOSITORY.readOnly(session -> session.find(Task.class, task.getId()));
+        var connects = statistics.getConnectCount();
+        var deleted = TASK_STORE.delete(task.getId());
+
+        assertThat(found).isNotNull();
+        assertThat(connects).isEqualTo(1);
+        assertThat(deleted).isTrue();
+        assertThat(all()).isEmpty();
+    }
+
+    /**
+     * Read-only command and unit of work restore read-only flag of their
+     * connection, so the built-in pool hands it out writable again.
+     */
+    @Test
+    void whenReadOnlyEndsThenPooledConnectionNotReadOnly() {
+        var registry = new StandardServiceRegistryBuilder().configure()
+                .applySetting(AvailableSettings.CONNECTION_PROVIDER,
+                        ReadOnlyTrackingConnectionProvider.class.getName())
+                .applySetting(AvailableSettings.USE_SECOND_LEVEL_CACHE, false)
+                .applySetting(AvailableSettings.USE_QUERY_CACHE, false)
+                .build();
+        try (var sf = new MetadataSources(registry).buildMetadata().buildSessionFactory()) {
+            var repository = new CrudRepository(sf);
+            repository.readOnly(session -> session.find(Task.class, 0));
+            var afterCommand = repository.tx(
+                    session -> session.doReturningWork(Connection::isReadOnly));
+            try (var unit = UnitOfWork.begin()) {
+                repository.readOnly(session -> session.find(Task.class, 0));
+            }
+            var afterUnit = repository.tx(
+                    session -> session.doReturningWork(Connection::isReadOnly));
+
+            assertThat(afterCommand).isFalse();
+            assertThat(afterUnit).isFalse();
+        } finally {
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+    }
+
+    /**
+     * Approximate count never goes negative.
+     */
+    @Test
+    void whenCountApproximatelyThenGetNotNegative() {
+        TASK_STORE.save(task);
+        assertThat(TASK_STORE.countApproximately()).isNotNegative();
+    }
+
+    /**
+     * Count of a filter uses the same predicate as its pages.
+     */
+    @Test
+    void whenCountByFilterThenCountOnlyMatchingTasks() {
+        task.setDone(true);
+        TASK_STORE.save(task);
+        var open = new Task();
+        open.setDescription("open");
+        open.setUser(task.getUser());
+        open.setPriority(normal);
+        TASK_STORE.save(open);
+
+        var completed = TaskFilter.builder().done(true).build();
+        var mine = TaskFilter.builder().done(true).userId(task.getUser().getId()).build();
+        var other = TaskFilter.builder().done(true).userId(-1).build();
+
+        assertThat(TASK_STORE.count(completed))
+                .isEqualTo(TASK_STORE.findByFilter(completed, null, 0, 10).items().size())
+                .isEqualTo(1);
+        assertThat(TASK_STORE.count(mine)).isEqualTo(1);
+        assertThat(TASK_STORE.count(other)).isZero();
+        assertThat(TASK_STORE.count(TaskFilter.builder().text("open").build()))
+                .isEqualTo(1);
+    }
+
+    /**
+     * List views cost a fixed number of statements however many tasks and owners they show:
+     * rows page with priorities, owners and category mask, or one task with its graph.
+     */
+    @Test
+    void whenListTasksOfManyOwnersThenStatementCountIsFixed() {
+        var owners = new ArrayList<User>();
+        for (int i = 0; i < 3; i++) {
+            var owner = new User(0, "owner" + i, "owner" + i, "password", "UTC", false);
+            USER_STORE.save(owner);
+            owners.add(owner);
+            for (int j = 0; j < 2; j++) {
+                var next = new Task();
+                next.setDescription("owned" + i + j);
+                next.setUser(owner);
+                next.setPriority(task.getPriority());
+                next.setCategories(new LinkedHashSet<>(task.getCategories()));
+                TASK_STORE.save(next);
+            }
+        }
+        var statistics = SESSION_FACTORY.getStatistics();
+        SESSION_FACTORY.getCache().evictAllRegions();
+
+        statistics.clear();
+        var page = TASK_STORE.findAll(0, 20).items();
+        var pageStatements = statistics.getPrepareStatementCount();
+        SESSION_FACTORY.getCache().evictAllRegions();
+        statistics.clear();
+        var one = TASK_STORE.getById(page.get(0).id());
+        var oneStatements = statistics.getPrepareStatementCount();
+        var logins = page.stream().map(TaskRow::owner).distinct().toList();
+        var rowCategories = page.stream().map(TaskRow::categories).distinct().toList();
+
+        for (var owned : page) {
+            TASK_STORE.delete(owned.id());
+        }
+        owners.forEach(owner -> USER_STORE.deleteByLogin(owner.getLogin()));
+
+        assertThat(page).hasSize(6);
+        assertThat(logins).containsExactly("owner0", "owner1", "owner2");
+        assertThat(rowCategories).containsExactly(task.categories());
+        assertThat(one).isNotEmpty();
+        assertThat(one.get().getUser().getLogin()).isEqualTo("owner0");
+        assertThat(pageStatements).isEqualTo(1);
+        assertThat(oneStatements).isEqualTo(1);
+    }
+
+    /**
+     * Statement budget of task views measured by request statistics hook.
+     */
+    @Test
+    void whenFindPageAndByIdThenStayWithinQueryBudget() {
+        TASK_STORE.save(task);
+        SESSION_FACTORY.getCache().evictAllRegions();
+
+        var statistics = RequestStatistics.start();
+        var page = TASK_STORE.findAll(0, 20);
+        var pageStatements = statistics.getStatements();
+        var pageRows = statistics.getRows();
+        statistics = RequestStatistics.start();
+        TASK_STORE.getById(task.getId());
+        var oneStatements = statistics.getStatements();
+        var oneTransactions = statistics.getTransactions();
+        RequestStatistics.stop();
+
+        assertThat(page.items()).extracting(TaskRow::id).containsExactly(task.getId());
+        assertThat(pageStatements).isEqualTo(1);
+        assertThat(pageRows).isEqualTo(1);
+        assertThat(oneStatements).isEqualTo(1);
+        assertThat(oneTransactions).isEqualTo(1);
+    }
+
+    /**
+     * Warm second-level cache serves task by ID without SQL,
+     * and task writes are visible right after them.
+     */
+    @Test
+    void whenGetByIdWithWarmCacheThenNoStatementsAndWritesVisible() {
+        TASK_STORE.save(task);
+        SESSION_FACTORY.getCache().evictAllRegions();
+        TASK_STORE.getById(task.getId());
+
+        var statistics = RequestStatistics.start();
+        var warm = TASK_STORE.getById(task.getId());
+        var warmStatements = statistics.getStatements();
+        RequestStatistics.stop();
+        var changed = new Task(task.getId(), "changed", task.getCreated(), false,
+                task.getUser(), normal, new LinkedHashSet<>(List.of(hobby)));
+        TASK_STORE.update(changed);
+        TASK_STORE.updateStatus(task.getId());
+        var updated = TASK_STORE.getById(task.getId());
+
+        assertThat(warmStatements).isZero();
+        assertThat(warm.get().getUser().getLogin()).isEqualTo(task.getUser().getLogin());
+        assertThat(warm.get().categories()).isEqualTo(task.categories());
+        assertThat(updated.get().getDescription()).isEqualTo("changed");
+        assertThat(updated.get().isDone()).isTrue();
+        assertThat(updated.get().getPriority()).isEqualTo(normal);
+        assertThat(updated.get().getCategories()).containsExactly(hobby);
+        assertThat(SESSION_FACTORY.getStatistics()
+                .getDomainDataRegionStatistics(Task.class.getName()).getHitCount()).isPositive();
+    }
+
+    /**
+     * Task cache serves repeated reads without a transaction
+     * and hands out copies, so changing a returned task does not change cache.
+     */
+    @Test
+    void whenGetByIdTwiceThenSecondFromTaskCacheAndCopiesIsolated() {
+        TASK_STORE.save(task);
+        var first = TASK_STORE.getById(task.getId()).get();
+        first.setCreated(first.getCreated().plusHours(3));
+        first.getCategories().clear();
+
+        var statistics = RequestStatistics.start();
+        var second = TASK_STORE.getById(task.getId()).get();
+        var transactions = statistics.getTransactions();
+        RequestStatistics.stop();
+
+        assertThat(transactions).isZero();
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getCreated()).isEqualTo(task.getCreated());
+        assertThat(second.getCategories()).containsExactlyElementsOf(task.getCategories());
+    }
+
+    /**
+     * Writes invalidate task cache.
+     */
+    @Test
+    void whenTaskChangedThenTaskCacheInvalidated() {
+        var tasks = bulk(2);
+        TASK_STORE.saveAll(tasks);
+        var ids = tasks.stream().map(Task::getId).toList();
+        ids.forEach(TASK_STORE::getById);
+
+        TASK_STORE.updateStatus(ids, owner());
+        assertThat(ids).allMatch(id -> TASK_STORE.getById(id).get().isDone());
+        TASK_STORE.delete(ids.get(0));
+        assertThat(TASK_STORE.getById(ids.get(0))).isEmpty();
+        TASK_STORE.delete(ids, owner());
+        assertThat(TASK_STORE.getById(ids.get(1))).isEmpty();
+    }
+
+    /**
+     * Old completed tasks are moved into archive chunk by chunk past the watermark,
+     * recent or not completed tasks stay, archived tasks are paged from archive.
+     */
+    @Test
+    void whenArchiveThenOldCompletedTasksMovedChunkByChunk() {
+        CRUD_REPOSITORY.run(session -> {
+            session.createNativeQuery("DELETE FROM tasks_categories_archive").executeUpdate();
+            session.createNativeQuery("DELETE FROM tasks_archive").executeUpdate();
+        });
+        var tasks = bulk(4);
+        var old = LocalDateTime.now().minusDays(100);
+        tasks.get(0).setCreated(old);
+        tasks.get(1).setCreated(old);
+        tasks.get(2).setCreated(old);
+        TASK_STORE.saveAll(tasks);
+        var ids = tasks.stream().map(Task::getId).toList();
+        TASK_STORE.updateStatus(List.of(ids.get(0), ids.get(1), ids.get(3)), owner());
+        ids.forEach(TASK_STORE::getById);
+        var before = LocalDateTime.now().minusDays(30);
+
+        var first = TASK_STORE.archive(before, 0, 1);
+        var second = TASK_STORE.archive(before, first.get(0), 1);
+        var third = TASK_STORE.archive(before, second.get(0), 1);
+
+        assertThat(first).containsExactly(ids.get(0));
+        assertThat(second).containsExactly(ids.get(1));
+        assertThat(third).isEmpty();
+        assertThat(TASK_STORE.getById(ids.get(0))).isEmpty();
+        assertThat(all()).extracting(Task::getId)
+                .containsExactly(ids.get(2), ids.get(3));
+        var archived = TASK_STORE.findArchived(0, 1);
+        assertThat(archived.items()).extracting(TaskRow::id).containsExactly(ids.get(0));
+        assertThat(archived.items().get(0).categoryNames())
+                .containsExactly(hobby.getName(), friends.getName());
+        assertThat(archived.hasNext()).isTrue();
+        assertThat(TASK_STORE.findArchived(archived.lastId(), 1).items())
+                .extracting(TaskRow::id).containsExactly(ids.get(1));
+        assertThat(TASK_STORE.findArchivedByUser(task.getUser().getId(), 0, 20).items())
+                .extracting(TaskRow::id).containsExactly(ids.get(0), ids.get(1));
+        assertThat(TASK_STORE.findArchivedByUser(-1, 0, 20).items()).isEmpty();
+    }
+
+    /**
+     * Owner-scoped finders return only tasks of the owner.
+     */
+    @Test
+    void whenFindByUserThenGetOnlyTasksOfUser() {
+        var stranger = new User(0, "stranger", "stranger", "password", "UTC", false);
+        USER_STORE.save(stranger);
+        task.setCreated(LocalDateTime.now());
+        TASK_STORE.save(task);
+        var foreign = bulk(1).get(0);
+        foreign.setUser(stranger);
+        TASK_STORE.save(foreign);
+        TASK_STORE.updateStatus(foreign.getId());
+        var ownerId = task.getUser().getId();
+
+        var all = TASK_STORE.findAllByUser(ownerId, 0, 20).items();
+        var completed = TASK_STORE.findCompletedByUser(stranger.getId(), true, 0, 20).items();
+        var notCompleted = TASK_STORE.findCompletedByUser(ownerId, true, 0, 20).items();
+        var fresh = TASK_STORE.findNewByUser(ownerId, 0, 20).items();
+        TASK_STORE.delete(foreign.getId());
+        USER_STORE.deleteByLogin(stranger.getLogin());
+
+        assertThat(all).extracting(TaskRow::id).containsExactly(task.getId());
+        assertThat(completed).extracting(TaskRow::id).containsExactly(foreign.getId());
+        assertThat(notCompleted).isEmpty();
+        assertThat(fresh).extracting(TaskRow::id).containsExactly(task.getId());
+    }
+
+    /**
+     * Owner-scoped queries are planned on composite owner indexes.
+     */
+    @Test
+    void whenExplainOwnerQueriesThenOwnerIndexesUsed() {
+        var byStatus = explain(
+                "SELECT id FROM tasks WHERE user_id = 1 AND done = TRUE AND id > 0 ORDER BY id");
+        var byCreated = explain(
+                "SELECT id FROM tasks WHERE user_id = 1 AND created >= CURRENT_TIMESTAMP");
+
+        assertThat(byStatus).containsIgnoringCase("tasks_user_id_done_id_idx");
+        assertThat(byCreated).containsIgnoringCase("tasks_user_id_created_idx");
+    }
+
+    /**
+     * Status, creation time and categories join are planned on indexes.
+     */
+    @Test
+    void whenExplainListQueriesThenIndexesUsed() {
+        var byStatus = explain("SELECT id FROM tasks WHERE done = TRUE AND id > 0 ORDER BY id");
+        var byCreated = explain("SELECT id FROM tasks WHERE created >= CURRENT_TIMESTAMP");
+        var byTasks = explain("SELECT category_id FROM tasks_categories WHERE task_id IN (1, 2)");
+        var byCategory = explain("SELECT task_id FROM tasks_categories WHERE category_id = 1");
+
+        assertThat(byStatus).containsIgnoringCase("tasks_done_id_idx");
+        assertThat(byCreated).containsIgnoringCase("tasks_created_idx");
+        assertThat(byTasks).doesNotContainIgnoringCase("tableScan");
+        assertThat(byCategory).doesNotContainIgnoringCase("tableScan");
+    }
+
+    /**
+     * Category can be linked to a task only once.
+     */
+    @Test
+    void whenLinkCategoryTwiceThenRejected() {
+        TASK_STORE.save(task);
+        var category = task.getCategories().iterator().next();
+        var link = "INSERT INTO tasks_categories(task_id, category_id) VALUES (:task, :category)";
+
+        assertThatThrownBy(() -> CRUD_REPOSITORY.run(session -> session.createNativeQuery(link)
+                .setParameter("task", task.getId())
+                .setParameter("category", category.getId())
+                .executeUpdate()))
+                .isInstanceOf(PersistenceException.class);
+    }
+
+    /**
+     * All tasks with owners, priorities and categories in ID order.
+     * @return list of tasks.
+     */
+    private static List<Task> all() {
+        return CRUD_REPOSITORY.readOnly(session -> session.createQuery(
+                "SELECT DISTINCT t FROM Task t JOIN FETCH t.user JOIN FETCH t.priority"
+                        + " LEFT JOIN FETCH t.categories ORDER BY t.id", Task.class)
+                .getResultList());
+    }
+
+    private static String explain(String sql) {
+        return CRUD_REPOSITORY.readOnly(session -> String.valueOf(
+                session.createNativeQuery("EXPLAIN " + sql).getSingleResult()));
+    }
+
+    /**
+     * Repeated page is served from query cache until tasks change.
+     */
+    @Test
+    void whenFindPageTwiceThenQueryCacheHitUntilTaskSaved() {
+        TASK_STORE.save(task);
+        TASK_STORE.findAll(0, 20);
+
+        var statistics = RequestStatistics.start();
+        var cached = TASK_STORE.findAll(0, 20);
+        var cachedStatements = statistics.getStatements();
+        RequestStatistics.stop();
+        var next = new Task();
+        next.setDescription("next");
+        next.setUser(task.getUser());
+        next.setPriority(normal);
+        TASK_STORE.save(next);
+
+        assertThat(cachedStatements).isZero();
+        assertThat(cached.items()).extracting(TaskRow::id).containsExactly(task.getId());
+        assertThat(TASK_STORE.findAll(0, 20).items()).extracting(TaskRow::id)
+                .containsExactly(task.getId(), next.getId());
+    }
+
+    /**
+     * Changes of entities loaded in read-only mode are never flushed.
+     */
+    @Test
+    void whenModifyTaskInReadOnlyModeThenNotPersisted() {
+        TASK_STORE.save(task);
+        CRUD_REPOSITORY.readOnly(session -> {
+            session.get(Task.class, task.getId()).setDescription("changed");
+            return null;
+        });
+        var found = TASK_STORE.getById(task.getId());
+        assertThat(found).isNotEmpty();
+        assertThat(found.get().getDescription()).isEqualTo(task.getDescription());
+    }
+
+    /**
+     * Export streams every task once with all its categories folded into one row.
+     */
+    @Test
+    void whenExportThenGetOneRowPerTaskInIdOrder() {
+        TASK_STORE.save(task);
+        var bare = new Task();
+        bare.setDescription("bare");
+        bare.setUser(task.getUser());
+        bare.setPriority(task.getPriority());
+        TASK_STORE.save(bare);
+
+        var rows = new ArrayList<TaskRow>();
+        var count = TASK_STORE.export(rows::add);
+
+        assertThat(count).isEqualTo(2);
+        assertThat(rows).extracting(TaskRow::id).containsExactly(task.getId(), bare.getId());
+        assertThat(rows.get(0).categories()).isEqualTo(task.categories());
+        assertThat(rows.get(1).categoryNames()).isEmpty();
+        assertThat(rows.get(0).owner()).isEqualTo(task.getUser().getLogin());
+    }
+
+    /**
+     * Failure in the middle of export propagates to caller instead of
+     * ending export as if every task was exported.
+     */
+    @Test
+    void whenExportFailsThenThrow() {
+        TASK_STORE.save(task);
+        var bare = new Task();
+        bare.setDescription("bare");
+        bare.setUser(task.getUser());
+        bare.setPriority(task.getPriority());
+        TASK_STORE.save(bare);
+
+        var rows = new ArrayList<TaskRow>();
+        assertThatThrownBy(() -> TASK_STORE.export(row -> {
+            if (!rows.isEmpty()) {
+                throw new IllegalStateException("client gone");
+            }
+            rows.add(row);
+        })).isInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("client gone");
+        assertThat(rows).hasSize(1);
     }
 
     /**
@@ -182,7 +878,7 @@ class TaskStoreTest implements AutoCloseable {
         TASK_STORE.save(task);
         var id = task.getId();
         assertThat(TASK_STORE.delete(id)).isTrue();
-        assertThat(TASK_STORE.findAll()).isEmpty();
+        assertThat(all()).isEmpty();
     }
 
     /**
@@ -193,7 +889,349 @@ class TaskStoreTest implements AutoCloseable {
         TASK_STORE.save(task);
         var id = -1;
         assertThat(TASK_STORE.delete(id)).isFalse();
-        assertThat(TASK_STORE.findAll()).isEqualTo(List.of(task));
+        assertThat(all()).isEqualTo(List.of(task));
+    }
+
+    /**
+     * Every condition of filter narrows result, rows come in filter order.
+     */
+    @Test
+    void whenFindByFilterThenGetMatchingTasksInSortOrder() {
+        var tasks = filtered();
+        var milk = tasks.get(0);
+        var bread = tasks.get(1);
+        var dog = tasks.get(2);
+        var percent = tasks.get(3);
+        TASK_STORE.updateStatus(bread.getId());
+
+        var buy = TaskFilter.builder().text("BUY").build();
+        var newBuy = TaskFilter.builder().text("buy").done(false).build();
+        var normalHobby = TaskFilter.builder()
+                .priorityIds(Set.of(normal.getId())).categoryIds(Set.of(hobby.getId())).build();
+        var february = TaskFilter.builder().createdFrom(LocalDateTime.of(2024, 2, 1, 0, 0))
+                .createdTo(LocalDateTime.of(2024, 3, 1, 0, 0)).build();
+        var escaped = TaskFilter.builder().text("0%").build();
+        var byPriority = TaskFilter.builder().userId(milk.getUser().getId())
+                .sort(TaskSort.PRIORITY).descending(true).build();
+        var byCreated = TaskFilter.builder().sort(TaskSort.CREATED).descending(true).build();
+
+        assertThat(ids(buy)).containsExactly(milk.getId(), bread.getId(), percent.getId());
+        assertThat(ids(newBuy)).containsExactly(milk.getId(), percent.getId());
+        assertThat(ids(normalHobby)).containsExactly(bread.getId());
+        assertThat(ids(february)).containsExactly(bread.getId());
+        assertThat(ids(escaped)).containsExactly(percent.getId());
+        assertThat(ids(byPriority))
+                .containsExactly(percent.getId(), dog.getId(), bread.getId(), milk.getId());
+        assertThat(ids(byCreated))
+                .containsExactly(percent.getId(), dog.getId(), bread.getId(), milk.getId());
+    }
+
+    /**
+     * Keyset pages sorted by non-unique key return every task once.
+     */
+    @Test
+    void whenPageByPriorityAndCreatedThenEveryTaskOnce() {
+        var tasks = filtered();
+        for (var sort : List.of(TaskSort.PRIORITY, TaskSort.CREATED)) {
+            for (var descending : List.of(false, true)) {
+                var filter = TaskFilter.builder().sort(sort).descending(descending).build();
+                var seen = new ArrayList<Integer>();
+                var slice = TASK_STORE.findByFilter(filter, null, 0, 1);
+                seen.addAll(slice.items().stream().map(TaskRow::id).toList());
+                while (slice.hasNext()) {
+                    slice = TASK_STORE.findByFilter(filter, slice.lastKey(), slice.lastId(), 1);
+                    seen.addAll(slice.items().stream().map(TaskRow::id).toList());
+                }
+                assertThat(seen).as("%s %s", sort, descending).isEqualTo(ids(filter));
+                assertThat(seen).hasSameSizeAs(tasks);
+            }
+        }
+    }
+
+    /**
+     * Filters with a sargable condition are planned on tasks indexes.
+     */
+    @Test
+    void whenExplainFilterQueriesThenTasksIndexesUsed() {
+        var done = TaskFilter.builder().done(true).build();
+        var mine = TaskFilter.builder().userId(1).done(false).build();
+        var priority = TaskFilter.builder().priorityIds(Set.of(1, 2)).build();
+        var created = TaskFilter.builder()
+                .createdFrom(LocalDateTime.of(2024, 1, 1, 0, 0)).sort(TaskSort.CREATED).build();
+        var text = TaskFilter.builder().priorityIds(Set.of(1)).text("milk").build();
+
+        assertThat(explain(done)).containsIgnoringCase("tasks_done_id_idx");
+        assertThat(explain(mine)).containsIgnoringCase("tasks_user_id_done_id_idx");
+        assertThat(explain(priority)).containsIgnoringCase("tasks_priority_id_id_idx");
+        assertThat(explain(created)).containsIgnoringCase("tasks_created_idx");
+        assertThat(explain(text)).containsIgnoringCase("tasks_priority_id_id_idx");
+    }
+
+    /**
+     * Filters of one shape share query plan, whatever the values
+     * and within padded IN list size.
+     */
+    @Test
+    void whenFindByFilterOfSameShapeThenQueryPlanReused() {
+        var statistics = SESSION_FACTORY.getStatistics();
+        var first = TaskFilter.builder().priorityIds(Set.of(1, 2, 3)).text("a").build();
+        var second = TaskFilter.builder().priorityIds(Set.of(2, 3, 4, 5)).text("b").build();
+        TASK_STORE.findByFilter(first, null, 0, 20);
+
+        var misses = statistics.getQueryPlanCacheMissCount();
+        TASK_STORE.findByFilter(second, null, 10, 20);
+
+        assertThat(statistics.getQueryPlanCacheMissCount()).isEqualTo(misses);
+    }
+
+    /**
+     * Category mask follows categories of saved and updated task,
+     * and category names of task and rows are decoded from it.
+     */
+    @Test
+    void whenSaveAndUpdateThenCategoryMaskFollowsCategories() {
+        var tasks = filtered();
+        var dog = tasks.get(2);
+        var home = CATEGORY_STORE.findAll().get(0);
+        var saved = dog.getCategoryMask();
+        dog.setCategories(new LinkedHashSet<>(List.of(hobby)));
+        TASK_STORE.update(dog);
+
+        var maskOf = CRUD_REPOSITORY.readOnly(session -> session.createQuery(
+                "SELECT t.categoryMask FROM Task t WHERE t.id = :id", Long.class)
+                .setParameter("id", dog.getId())
+                .getSingleResult());
+        var rows = TASK_STORE.findAll(0, 20).items();
+
+        assertThat(saved).isEqualTo(CategoryMask.ofIds(List.of(home.getId(), friends.getId())));
+        assertThat(maskOf).isEqualTo(1L << hobby.getId() - 1);
+        assertThat(TASK_STORE.getById(dog.getId()).get().categories()).isEqualTo(hobby.getName());
+        assertThat(rows).extracting(TaskRow::categoryNames).containsExactly(
+                List.of(home.getName()), List.of(hobby.getName()),
+                List.of(hobby.getName()), List.of());
+    }
+
+    /**
+     * Bitwise filter by category mask finds the same tasks as the join
+     * with tasks_categories, and is not slower than it.
+     */
+    @Test
+    void whenFilterByCategoryMaskThenSameTasksAsJoinAndNotSlower() {
+        var tasks = bulk(3000);
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).setCategories(Set.of(i % 100 == 0 ? friends : hobby));
+        }
+        TASK_STORE.saveAll(tasks);
+        var filter = TaskFilter.builder().categoryIds(Set.of(friends.getId())).build();
+        var mask = TaskFilterQuery.shapeOf(filter, null, 0);
+        var join = new TaskFilterQuery.Shape(false, false, true, false, false, false,
+                false, false, mask.sort(), mask.descending(), mask.after());
+
+        var byMask = filteredIds(filter, mask);
+        var byJoin = filteredIds(filter, join);
+        var maskNanos = medianNanos(filter, mask);
+        var joinNanos = medianNanos(filter, join);
+
+        assertThat(mask.categoryMask()).isTrue();
+        assertThat(byMask).hasSize(30).isEqualTo(byJoin);
+        assertThat(maskNanos).isLessThan(joinNanos * 2);
+    }
+
+    /**
+     * On H2 search falls back to every word of query occurring in description,
+     * the newest tasks first, page by page.
+     */
+    @Test
+    void whenSearchThenGetTasksWithEveryWordNewestFirst() {
+        var tasks = filtered();
+        var milk = tasks.get(0);
+        var bread = tasks.get(1);
+        var percent = tasks.get(3);
+
+        var buy = TASK_STORE.search("buy", 0, 20).items();
+        var buyMilk = TASK_STORE.search(" MILK  buy ", 0, 20).items();
+        var escaped = TASK_STORE.search("0% buy_", 0, 20).items();
+        var first = TASK_STORE.search("buy", 0, 2);
+        var second = TASK_STORE.search("buy", 1, 2);
+        var statistics = SESSION_FACTORY.getStatistics();
+        statistics.clear();
+        var walk = TASK_STORE.search("walk", 0, 20).items();
+        var walkStatements = statistics.getPrepareStatementCount();
+
+        assertThat(buy).extracting(TaskRow::id)
+                .containsExactly(percent.getId(), bread.getId(), milk.getId());
+        assertThat(buy.get(2).categoryNames()).containsExactly(milk.categories());
+        assertThat(buy.get(1).categoryNames()).containsExactly(hobby.getName());
+        assertThat(buy.get(0).categoryNames()).isEmpty();
+        assertThat(walk).hasSize(1);
+        assertThat(walk.get(0).categories()).isEqualTo(tasks.get(2).categories());
+        assertThat(walkStatements).isEqualTo(1);
+        assertThat(buyMilk).extracting(TaskRow::id).containsExactly(milk.getId());
+        assertThat(escaped).extracting(TaskRow::id).containsExactly(percent.getId());
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.items()).extracting(TaskRow::id).containsExactly(milk.getId());
+        assertThat(second.hasNext()).isFalse();
+        assertThat(TASK_STORE.search(" ", 0, 20).items()).isEmpty();
+        assertThat(TASK_STORE.search("cat", 0, 20).items()).isEmpty();
+    }
+
+    /**
+     * Typeahead index follows saved, updated, archived and deleted tasks
+     * and is rebuilt from DB by one scan.
+     */
+    @Test
+    void whenTasksChangedThenSuggestionsFollowWithoutDb() {
+        var tasks = filtered();
+        var milk = tasks.get(0);
+        var dog = tasks.get(2);
+        milk.setDescription("Buy oat milk");
+        TASK_STORE.update(milk);
+        TASK_STORE.delete(dog.getId());
+
+        var statistics = RequestStatistics.start();
+        var buy = TASK_STORE.suggest("bu", 10);
+        var oat = TASK_STORE.suggest("mil OA", 10);
+        var statements = statistics.getStatements();
+        RequestStatistics.stop();
+        var loaded = TASK_STORE.loadSuggestions();
+
+        assertThat(statements).isZero();
+        assertThat(buy).extracting(TaskSuggestion::id)
+                .containsExactly(tasks.get(3).getId(), tasks.get(1).getId(), milk.getId());
+        assertThat(oat).extracting(TaskSuggestion::description).containsExactly("Buy oat milk");
+        assertThat(TASK_STORE.suggest("walk", 10)).isEmpty();
+        assertThat(loaded).isEqualTo(3);
+        assertThat(TASK_STORE.suggest("bu", 10)).isEqualTo(buy);
+        assertThat(TASK_STORE.suggestMetrics()).containsEntry("tasks", 3);
+    }
+
+    /**
+     * Tasks removed bypassing the store, as by detached partition, stay in task
+     * cache and typeahead index until they are evicted.
+     */
+    @Test
+    void whenTasksRemovedBypassingStoreThenEvictAllDropsThem() {
+        var tasks = filtered();
+        var dog = tasks.get(2);
+        TASK_STORE.getById(dog.getId());
+        CRUD_REPOSITORY.run(session -> session.doWork(connection -> {
+            try (var statement = connection.createStatement()) {
+                statement.execute("DELETE FROM tasks_categories WHERE task_id = " + dog.getId());
+                statement.execute("DELETE FROM tasks WHERE id = " + dog.getId());
+            }
+        }));
+        SESSION_FACTORY.getCache().evictAllRegions();
+        var cached = TASK_STORE.getById(dog.getId());
+        var suggested = TASK_STORE.suggest("walk", 10);
+
+        var indexed = TASK_STORE.evictAll();
+
+        assertThat(cached).isNotEmpty();
+        assertThat(suggested).extracting(TaskSuggestion::id).containsExactly(dog.getId());
+        assertThat(indexed).isEqualTo(3);
+        assertThat(TASK_STORE.getById(dog.getId())).isEmpty();
+        assertThat(TASK_STORE.suggest("walk", 10)).isEmpty();
+    }
+
+    /**
+     * Save four tasks of different priority, categories, creation time and text.
+     */
+    private static List<Task> filtered() {
+        var priorities = PRIORITY_STORE.findAll();
+        var categories = CATEGORY_STORE.findAll();
+        var home = categories.get(0);
+        var tasks = List.of(
+                filtered("Buy milk", priorities.get(0), Set.of(home), 1),
+                filtered("buy bread", normal, Set.of(hobby), 2),
+                filtered("Walk dog", normal, Set.of(home, friends), 3),
+                filtered("100% buy_in", priorities.get(3), Set.of(), 4));
+        tasks.forEach(TASK_STORE::save);
+        return tasks;
+    }
+
+    private static Task filtered(String description, Priority priority,
+                                 Set<Category> categories, int month) {
+        var result = new Task();
+        result.setDescription(description);
+        result.setUser(task.getUser());
+        result.setPriority(priority);
+        result.setCategories(new LinkedHashSet<>(categories));
+        result.setCreated(LocalDateTime.of(2024, month, 10, 12, 0));
+        return result;
+    }
+
+    /**
+     * Detached copy of task as bound from edit form, categories given by ID.
+     */
+    private static Task submitted(Task source) {
+        var categories = new LinkedHashSet<Category>();
+        source.getCategories().forEach(category -> categories.add(new Category(category.getId())));
+        var task = new Task(source.getId(), source.getDescription(), source.getCreated(),
+                source.isDone(), source.getUser(), source.getPriority(), categories);
+        task.setVersion(source.getVersion());
+        return task;
+    }
+
+    private static List<Integer> filteredIds(TaskFilter filter, TaskFilterQuery.Shape shape) {
+        return CRUD_REPOSITORY.readOnly(session -> {
+            var query = session.createQuery(TaskFilterQuery.hql(shape), Object[].class);
+            TaskFilterQuery.args(filter, shape, null, 0).forEach(query::setParameter);
+            return query.setMaxResults(100).list().stream()
+                    .map(tuple -> (Integer) tuple[0]).toList();
+        });
+    }
+
+    private static long medianNanos(TaskFilter filter, TaskFilterQuery.Shape shape) {
+        var nanos = new ArrayList<Long>();
+        for (int i = 0; i < 51; i++) {
+            var start = System.nanoTime();
+            filteredIds(filter, shape);
+            nanos.add(System.nanoTime() - start);
+        }
+        nanos.sort(Long::compare);
+        return nanos.get(nanos.size() / 2);
+    }
+
+    private static List<Integer> ids(TaskFilter filter) {
+        return TASK_STORE.findByFilter(filter, null, 0, 20).items().stream()
+                .map(TaskRow::id).toList();
+    }
+
+    /**
+     * Plan of SQL compiled from filter, with parameters inlined as literals.
+     */
+    private static String explain(TaskFilter filter) {
+        var shape = TaskFilterQuery.shapeOf(filter, null, 0);
+        var sql = ((SessionFactoryImplementor) SESSION_FACTORY).getQueryPlanCache()
+                .getHQLQueryPlan(TaskFilterQuery.hql(shape), false, Map.of())
+                .getSqlStrings()[0];
+        var matcher = Pattern.compile("(\\w+)\\s*(?:[<>]=?|=)\\s*\\?").matcher(sql);
+        var inlined = matcher.replaceAll(match -> {
+            var literal = switch (match.group(1)) {
+                case "created" -> "TIMESTAMP '2024-01-01 00:00:00'";
+                case "done" -> "TRUE";
+                default -> "1";
+            };
+            return match.group().replace("?", literal);
+        });
+        return explain(inlined.replaceAll("like \\?", "like '%a%'").replace("?", "1"));
+    }
+
+    private static int owner() {
+        return task.getUser().getId();
+    }
+
+    private static List<Task> bulk(int size) {
+        var tasks = new ArrayList<Task>();
+        for (int i = 0; i < size; i++) {
+            var item = new Task();
+            item.setDescription("bulk" + i);
+            item.setUser(task.getUser());
+            item.setPriority(normal);
+            item.setCategories(Set.of(hobby, friends));
+            tasks.add(item);
+        }
+        return tasks;
     }
 
     @Override
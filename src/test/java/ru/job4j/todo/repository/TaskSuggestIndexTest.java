@@ -0,0 +1,144 @@
+package ru.job4j.todo.repository;
+
+import org.junit.jupiter.api.Test;
+import ru.job4j.todo.model.TaskSuggestion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskSuggestIndexTest {
+
+    /**
+     * Suggestions are the newest tasks having a word starting with every word of query.
+     */
+    @Test
+    void whenSuggestThenNewestTasksMatchingEveryPrefix() {
+        var index = new TaskSuggestIndex(1024 * 1024);
+        index.put(1, "Buy milk");
+        index.put(2, "buy bread, then milk!");
+        index.put(3, "Walk the dog");
+        index.put(4, "Bug in Milky way");
+
+        assertThat(index.suggest("mil BU", 10)).extracting(TaskSuggestion::id)
+                .containsExactly(4, 2, 1);
+        assertThat(index.suggest("bu", 2)).extracting(TaskSuggestion::id)
+                .containsExactly(4, 2);
+        assertThat(index.suggest("buy walk", 10)).isEmpty();
+        assertThat(index.suggest("  ", 10)).isEmpty();
+
+        index.put(3, "Buy dog food");
+        index.remove(4);
+
+        assertThat(index.suggest("buy", 10)).extracting(TaskSuggestion::description)
+                .containsExactly("Buy dog food", "buy bread, then milk!", "Buy milk");
+        assertThat(index.suggest("walk", 10)).isEmpty();
+        assertThat(index.metrics()).containsEntry("tasks", 3).containsEntry("lookups", 6L);
+    }
+
+    /**
+     * Memory stays within the bound, the oldest tasks are evicted first
+     * and older tasks are not let into a full index.
+     */
+    @Test
+    void whenMemoryBoundReachedThenOldestTasksEvicted() {
+        var maxBytes = 16 * 1024L;
+        var index = new TaskSuggestIndex(maxBytes);
+        for (int id = 1; id <= 200; id++) {
+            index.put(id, "task number " + id);
+        }
+
+        var metrics = index.metrics();
+        assertThat((Long) metrics.get("bytes")).isPositive().isLessThanOrEqualTo(maxBytes);
+        assertThat((Long) metrics.get("evictions")).isPositive();
+        assertThat(index.suggest("task", 1)).extracting(TaskSuggestion::id).containsExactly(200);
+        assertThat(index.suggest("1", 200)).extracting(TaskSuggestion::id).doesNotContain(1);
+        assertThat(index.put(1, "task number 1")).isFalse();
+
+        index.removeAll(List.of(200, 199));
+        index.clear();
+        assertThat(index.metrics()).containsEntry("tasks", 0).containsEntry("bytes", 0L);
+    }
+
+    /**
+     * One and two letter query takes ids of its prefix instead of merging
+     * every word starting with it, so median lookup among twenty thousand
+     * such words stays below 200 microseconds, and prefix ids follow removed tasks.
+     */
+    @Test
+    void whenShortPrefixThenNewestTasksWithoutScanningWords() {
+        var index = new TaskSuggestIndex(64L * 1024 * 1024);
+        for (int id = 1; id <= 20_000; id++) {
+            index.put(id, "bq" + id + " task");
+        }
+        index.put(20_001, "b");
+        index.put(20_002, "Walk dog");
+
+        var b = index.suggest("b", 3);
+        var nanos = new ArrayList<Long>();
+        for (int i = 0; i < 200; i++) {
+            var start = System.nanoTime();
+            index.suggest("b", 3);
+            nanos.add(System.nanoTime() - start);
+        }
+        nanos.sort(Long::compare);
+        index.remove(20_001);
+        var bq = index.suggest("BQ ta", 2);
+        index.removeAll(List.of(19_999, 20_000, 20_002));
+        var bqRemoved = index.suggest("bq", 1);
+
+        assertThat(b).extracting(TaskSuggestion::id).containsExactly(20_001, 20_000, 19_999);
+        assertThat(nanos.get(nanos.size() / 2)).isLessThan(200_000L);
+        assertThat(bq).extracting(TaskSuggestion::id).containsExactly(20_000, 19_999);
+        assertThat(bqRemoved).extracting(TaskSuggestion::id).containsExactly(19_998);
+        assertThat(index.suggest("wa", 10)).isEmpty();
+        for (int id = 1; id <= 19_998; id++) {
+            index.remove(id);
+        }
+        assertThat(index.metrics()).containsEntry("tasks", 0).containsEntry("bytes", 0L);
+    }
+
+    /**
+     * Lookup over a hundred thousand tasks takes well under a millisecond:
+     * median below 200 microseconds, 90th percentile below a millisecond.
+     */
+    @Test
+    void whenHundredThousandTasksIndexedThenLookupWellUnderMillisecond() {
+        var random = new Random(42);
+        var words = new ArrayList<String>();
+        for (int i = 0; i < 5000; i++) {
+            var word = new StringBuilder();
+            for (int j = 0; j < 3 + random.nextInt(6); j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words.add(word.toString());
+        }
+        var index = new TaskSuggestIndex(256L * 1024 * 1024);
+        for (int id = 1; id <= 100_000; id++) {
+            var description = new StringBuilder();
+            for (int j = 0; j < 6; j++) {
+                description.append(words.get(random.nextInt(words.size()))).append(' ');
+            }
+            index.put(id, description.toString());
+        }
+        var queries = new ArrayList<String>();
+        for (int i = 0; i < 2000; i++) {
+            var word = words.get(random.nextInt(words.size()));
+            queries.add(word.substring(0, 2 + random.nextInt(word.length() - 1)));
+        }
+        queries.forEach(query -> index.suggest(query, 10));
+
+        var nanos = new ArrayList<Long>();
+        for (var query : queries) {
+            var start = System.nanoTime();
+            index.suggest(query, 10);
+            nanos.add(System.nanoTime() - start);
+        }
+
+        nanos.sort(Long::compare);
+        assertThat(nanos.get(nanos.size() / 2)).isLessThan(200_000L);
+        assertThat(nanos.get(nanos.size() * 9 / 10)).isLessThan(1_000_000L);
+    }
+}
@@ -34,11 +34,16 @@ class UserStoreTest implements AutoCloseable {
         user.setTimezone("UTC");
     }
 
+    /**
+     * Delete users added by test. Administrator is seed data other tests rely on.
+     */
     @AfterEach
     void clear() {
         var users = USER_STORE.findAll();
         for (var user : users) {
-            USER_STORE.deleteByLogin(user.getLogin());
+            if (!user.isAdmin()) {
+                USER_STORE.deleteByLogin(user.getLogin());
+            }
         }
     }
 
@@ -52,6 +57,19 @@ class UserStoreTest implements AutoCloseable {
         assertThat(USER_STORE.findAll()).isEqualTo(List.of(admin, userOptional.get()));
     }
 
+    /**
+     * Administrator flag is granted only in DB: it is not saved on registration.
+     */
+    @Test
+    void whenSaveUserAsAdminThenStoredNotAdmin() {
+        var registered = new User(0, "name2", "login2", "password2", "UTC", true);
+        USER_STORE.save(registered);
+
+        assertThat(admin.isAdmin()).isTrue();
+        assertThat(USER_STORE.findByLogin(registered.getLogin()))
+                .hasValueSatisfying(stored -> assertThat(stored.isAdmin()).isFalse());
+    }
+
     /**
      * Get empty optional if User cannot be saved.
      */
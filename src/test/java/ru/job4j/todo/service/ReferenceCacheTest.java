@@ -0,0 +1,97 @@
+package ru.job4j.todo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReferenceCacheTest {
+    private static final Duration TTL = Duration.ofMinutes(10);
+    private AtomicLong clock;
+    private AtomicInteger loads;
+    private List<String> table;
+    private List<List<String>> loaded;
+    private ReferenceCache<String> cache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong();
+        loads = new AtomicInteger();
+        table = new ArrayList<>(List.of("low", "high"));
+        loaded = new ArrayList<>();
+        cache = new ReferenceCache<>("test", () -> {
+            loads.incrementAndGet();
+            return new ArrayList<>(table);
+        }, TTL, loaded::add, clock::get);
+    }
+
+    /**
+     * First get loads table, next gets are hits served from snapshot.
+     */
+    @Test
+    void whenGetTwiceThenLoadedOnceAndHit() {
+        assertThat(cache.get()).containsExactly("low", "high");
+        assertThat(cache.get()).containsExactly("low", "high");
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.metrics()).containsEntry("size", 2).containsEntry("loads", 1L);
+    }
+
+    /**
+     * Snapshot is immutable and not affected by later changes of the table.
+     */
+    @Test
+    void whenTableChangedThenSnapshotKeptUntilRefresh() {
+        var snapshot = cache.get();
+        table.add("urgent");
+
+        assertThatThrownBy(() -> snapshot.add("urgent"))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThat(cache.get()).containsExactly("low", "high");
+        cache.refresh();
+        assertThat(cache.get()).containsExactly("low", "high", "urgent");
+        assertThat(loads).hasValue(2);
+        assertThat(loaded).containsExactly(
+                List.of("low", "high"), List.of("low", "high", "urgent"));
+    }
+
+    /**
+     * Snapshot is reloaded once TTL expired.
+     */
+    @Test
+    void whenTtlExpiredThenReloaded() {
+        cache.get();
+        clock.addAndGet(TTL.toNanos() - 1);
+        cache.get();
+        clock.addAndGet(1);
+        cache.get();
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(2);
+    }
+
+    /**
+     * Empty result, returned by store on DB failure, is not cached
+     * and not passed to listener.
+     */
+    @Test
+    void whenLoadedEmptyThenNotCached() {
+        table.clear();
+        assertThat(cache.get()).isEmpty();
+        table.add("low");
+
+        assertThat(cache.get()).containsExactly("low");
+        assertThat(loads).hasValue(2);
+        assertThat(loaded).containsExactly(List.of("low"));
+    }
+}
@@ -0,0 +1,65 @@
+package ru.job4j.todo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.todo.repository.TaskStore;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class TaskArchiveServiceTest {
+    private static final Clock CLOCK =
+            Clock.fixed(Instant.parse("2024-03-15T10:00:00Z"), ZoneOffset.UTC);
+    private static final LocalDateTime BEFORE = LocalDateTime.of(2023, 12, 16, 10, 0);
+    private TaskStore taskStore;
+
+    @BeforeEach
+    void setUp() {
+        taskStore = mock(TaskStore.class);
+    }
+
+    /**
+     * Chunks are archived past watermark until a short chunk comes.
+     */
+    @Test
+    void whenArchiveThenChunksArchivedPastWatermark() {
+        when(taskStore.archive(BEFORE, 0, 2)).thenReturn(List.of(3, 5));
+        when(taskStore.archive(BEFORE, 5, 2)).thenReturn(List.of(8, 9));
+        when(taskStore.archive(BEFORE, 9, 2)).thenReturn(List.of(12));
+        var service = new TaskArchiveService(taskStore, 90, 2, 0, CLOCK);
+
+        assertThat(service.archive()).isEqualTo(5);
+        verify(taskStore, times(3)).archive(any(), anyInt(), anyInt());
+        assertThat(service.metrics())
+                .containsEntry("runs", 1L)
+                .containsEntry("chunks", 3L)
+                .containsEntry("archived", 5L)
+                .containsEntry("watermark", 12L)
+                .containsEntry("lastRunArchived", 5L);
+    }
+
+    /**
+     * Next run starts from the lowest ID again.
+     */
+    @Test
+    void whenArchiveAgainThenStartedFromLowestId() {
+        when(taskStore.archive(BEFORE, 0, 2)).thenReturn(List.of(3), List.of());
+        var service = new TaskArchiveService(taskStore, 90, 2, 0, CLOCK);
+
+        service.archive();
+        assertThat(service.archive()).isZero();
+
+        verify(taskStore, times(2)).archive(BEFORE, 0, 2);
+        assertThat(service.metrics())
+                .containsEntry("runs", 2L)
+                .containsEntry("archived", 1L)
+                .containsEntry("watermark", 3L)
+                .containsEntry("lastRunArchived", 0L);
+    }
+}
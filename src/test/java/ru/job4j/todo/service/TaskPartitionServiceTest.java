@@ -0,0 +1,86 @@
+package ru.job4j.todo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.todo.repository.TaskPartitionStore;
+import ru.job4j.todo.repository.TaskStore;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class TaskPartitionServiceTest {
+    private static final Clock CLOCK =
+            Clock.fixed(Instant.parse("2024-03-15T10:00:00Z"), ZoneOffset.UTC);
+    private TaskPartitionStore partitionStore;
+    private TaskStore taskStore;
+
+    @BeforeEach
+    void setUp() {
+        partitionStore = mock(TaskPartitionStore.class);
+        taskStore = mock(TaskStore.class);
+        when(partitionStore.isSupported()).thenReturn(true);
+        when(partitionStore.create(any())).thenReturn(true);
+        when(partitionStore.detach(any())).thenReturn(true);
+    }
+
+    /**
+     * Partitions of current and next months are created.
+     */
+    @Test
+    void whenMaintainThenCurrentAndNextMonthsCreated() {
+        new TaskPartitionService(partitionStore, taskStore, 2, 0, CLOCK).maintain();
+
+        verify(partitionStore).create(YearMonth.of(2024, 3));
+        verify(partitionStore).create(YearMonth.of(2024, 4));
+        verify(partitionStore).create(YearMonth.of(2024, 5));
+        verify(partitionStore, never()).findAll();
+        verify(partitionStore, never()).detach(any());
+        verify(taskStore, never()).evictAll();
+    }
+
+    /**
+     * Current month and retention period before it stay attached,
+     * older partitions are detached and their tasks evicted from caches.
+     */
+    @Test
+    void whenRetentionSetThenOlderPartitionsDetached() {
+        when(partitionStore.findAll()).thenReturn(List.of("tasks_2023_11", "tasks_2023_12",
+                "tasks_2024_01", "tasks_2024_02", "tasks_2024_03"));
+
+        new TaskPartitionService(partitionStore, taskStore, 0, 3, CLOCK).maintain();
+
+        verify(partitionStore).detach(YearMonth.of(2023, 11));
+        verify(partitionStore, times(1)).detach(any());
+        verify(taskStore).evictAll();
+    }
+
+    /**
+     * Nothing is done where partitioning is not supported, e.g. on H2.
+     */
+    @Test
+    void whenNotSupportedThenNothingDone() {
+        when(partitionStore.isSupported()).thenReturn(false);
+
+        new TaskPartitionService(partitionStore, taskStore, 2, 3, CLOCK).maintain();
+
+        verify(partitionStore, never()).create(any());
+        verify(partitionStore, never()).detach(any());
+    }
+
+    /**
+     * Partition name and month map onto each other.
+     */
+    @Test
+    void whenNameOfMonthThenMonthOfNameIsSame() {
+        var month = YearMonth.of(2024, 1);
+
+        assertThat(TaskPartitionStore.nameOf(month)).isEqualTo("tasks_2024_01");
+        assertThat(TaskPartitionStore.monthOf("tasks_2024_01")).isEqualTo(month);
+    }
+}
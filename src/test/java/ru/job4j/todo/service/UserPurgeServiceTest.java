@@ -0,0 +1,160 @@
+package ru.job4j.todo.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.todo.model.Task;
+import ru.job4j.todo.model.User;
+import ru.job4j.todo.repository.CategoryStore;
+import ru.job4j.todo.repository.CrudRepository;
+import ru.job4j.todo.repository.PriorityStore;
+import ru.job4j.todo.repository.TaskStore;
+import ru.job4j.todo.repository.UserPurgeStore;
+import ru.job4j.todo.repository.UserStore;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserPurgeServiceTest implements AutoCloseable {
+    /**
+     * Purge and list pages run concurrently, each on its own connection.
+     */
+    private static final StandardServiceRegistry REGISTRY = new StandardServiceRegistryBuilder()
+            .configure().applySetting(AvailableSettings.POOL_SIZE, 4).build();
+    private static final SessionFactory SESSION_FACTORY = new MetadataSources(REGISTRY)
+            .buildMetadata().buildSessionFactory();
+    private static final CrudRepository CRUD_REPOSITORY = new CrudRepository(SESSION_FACTORY);
+    private static final TaskStore TASK_STORE = new TaskStore(CRUD_REPOSITORY);
+    private static final UserStore USER_STORE = new UserStore(CRUD_REPOSITORY);
+    private static final UserPurgeStore PURGE_STORE = new UserPurgeStore(CRUD_REPOSITORY);
+    private static final PriorityStore PRIORITY_STORE = new PriorityStore(CRUD_REPOSITORY);
+    private static final CategoryStore CATEGORY_STORE = new CategoryStore(CRUD_REPOSITORY);
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        var login = "purged" + System.nanoTime();
+        user = new User(0, login, login, "password", "UTC", false);
+        USER_STORE.save(user);
+    }
+
+    /**
+     * Tasks, archived tasks and then user are deleted batch by batch.
+     */
+    @Test
+    void whenPurgeThenTasksAndUserDeletedInBatches() {
+        var tasks = tasks(250);
+        TASK_STORE.saveAll(tasks);
+        var archived = archived();
+        var service = new UserPurgeService(USER_STORE, TASK_STORE, PURGE_STORE, 100, 0);
+
+        assertThat(service.purge(user.getLogin())).isTrue();
+        assertThat(service.purge(user.getLogin())).isFalse();
+        assertThat(service.purge("admin")).isFalse();
+        assertThat(service.resume()).isEqualTo(1);
+
+        assertThat(USER_STORE.findByLogin(user.getLogin())).isEmpty();
+        assertThat(TASK_STORE.getById(tasks.get(0).getId())).isEmpty();
+        assertThat(TASK_STORE.findArchived(archived.getId() - 1, 1).items())
+                .noneMatch(row -> row.id() == archived.getId());
+        assertThat(PURGE_STORE.findUnfinished()).isEmpty();
+        assertThat(service.metrics())
+                .containsEntry("batches", 4L)
+                .containsEntry("tasksDeleted", 251L)
+                .containsEntry("usersPurged", 1L);
+    }
+
+    /**
+     * Purge interrupted after the first batch, e.g. by a crash,
+     * is finished by the next run with progress kept.
+     */
+    @Test
+    void whenPurgeInterruptedThenResumed() {
+        TASK_STORE.saveAll(tasks(30));
+        var service = new UserPurgeService(USER_STORE, TASK_STORE, PURGE_STORE, 10, 0);
+        service.purge(user.getLogin());
+        PURGE_STORE.addProgress(user.getId(), TASK_STORE.deleteByUser(user.getId(), 10));
+
+        assertThat(PURGE_STORE.findUnfinished())
+                .anyMatch(purge -> purge.userId() == user.getId() && purge.tasksDeleted() == 10);
+        new UserPurgeService(USER_STORE, TASK_STORE, PURGE_STORE, 10, 0).resume();
+
+        assertThat(USER_STORE.findByLogin(user.getLogin())).isEmpty();
+        assertThat(PURGE_STORE.findUnfinished()).isEmpty();
+        var tasksDeleted = CRUD_REPOSITORY.readOnly(session -> ((Number) session
+                .createNativeQuery("SELECT tasks_deleted FROM user_purges WHERE user_id = :id")
+                .setParameter("id", user.getId())
+                .getSingleResult()).longValue());
+        assertThat(tasksDeleted).isEqualTo(30);
+    }
+
+    /**
+     * Task list pages stay fast while a large purge runs, since every batch
+     * holds its locks for one short transaction and batches are throttled.
+     */
+    @Test
+    void whenLargePurgeRunsThenTaskListLatencyStaysLow() throws InterruptedException {
+        TASK_STORE.saveAll(tasks(3000));
+        var service = new UserPurgeService(USER_STORE, TASK_STORE, PURGE_STORE, 100, 10);
+        service.purge(user.getLogin());
+        for (int i = 0; i < 20; i++) {
+            TASK_STORE.findAll(0, 20);
+        }
+
+        var purge = new Thread(service::resume);
+        purge.start();
+        var latencies = new ArrayList<Long>();
+        while (purge.isAlive()) {
+            var start = System.nanoTime();
+            TASK_STORE.findAll(0, 20);
+            latencies.add(Duration.ofNanos(System.nanoTime() - start).toMillis());
+        }
+        purge.join();
+
+        latencies.sort(Long::compare);
+        assertThat(USER_STORE.findByLogin(user.getLogin())).isEmpty();
+        assertThat(latencies).isNotEmpty();
+        assertThat(latencies.get(latencies.size() * 95 / 100)).isLessThan(250L);
+        assertThat(latencies.get(latencies.size() - 1)).isLessThan(2000L);
+    }
+
+    private List<Task> tasks(int size) {
+        var priority = PRIORITY_STORE.findAll().get(0);
+        var categories = CATEGORY_STORE.findAll().subList(0, 2);
+        var result = new ArrayList<Task>();
+        for (int i = 0; i < size; i++) {
+            var task = new Task();
+            task.setDescription("purge" + i);
+            task.setUser(user);
+            task.setPriority(priority);
+            task.setCategories(new LinkedHashSet<>(categories));
+            result.add(task);
+        }
+        return result;
+    }
+
+    /**
+     * Save completed task of the user and move it into archive.
+     */
+    private Task archived() {
+        var task = tasks(1).get(0);
+        TASK_STORE.save(task);
+        TASK_STORE.updateStatus(task.getId());
+        TASK_STORE.archive(LocalDateTime.now().plusDays(1), task.getId() - 1, 1);
+        return task;
+    }
+
+    @Override
+    public void close() {
+        StandardServiceRegistryBuilder.destroy(REGISTRY);
+    }
+}